@@ -6,21 +6,74 @@ import android.content.SharedPreferences;
 public class AppPreferencesManager {
 
 	private static AppPreferencesManager instance;
+	private final Context context;
 	private SharedPreferences sharedPreferences;
 	private SharedPreferences.Editor editor;
+	// Written only by the service process, so the two processes never write the same file
+	private final SharedPreferences serviceState;
+	// Resolved from both files by reload() and kept current by the setters, so reading it costs nothing
+	private boolean preventTouch;
 
 	private static final String PREF_NAME = "black_overlay_prefs";
+	private static final String SERVICE_STATE_NAME = "black_overlay_service_state";
 	private static final String KEY_TOTAL_DENIALS = "total_permission_denials"; // Global counter for all prompts shown & denied/dismissed
 	private static final String KEY_INITIAL_LAUNCH_PROMPT_COUNT = "initial_launch_prompt_count"; // Counter for prompts shown specifically on onCreate
 	private static final String KEY_PREVENT_TOUCH = "preventTouch";
+	private static final String KEY_PREVENT_TOUCH_TIME = "preventTouchTime";
 	private static final String KEY_MEDIA_CONTROL_ENABLED = "mediaEnabled";
+	private static final String KEY_WARM_OVERLAY = "warmOverlay";
+	private static final String KEY_CLOCK_STYLE = "clockStyle";
+	private static final String KEY_FLOATING_BUTTON_X = "floatingButtonX";
+	private static final String KEY_FLOATING_BUTTON_Y = "floatingButtonY";
+	private static final String KEY_TAPS_TO_WAKE = "tapsToWake";
+	private static final String KEY_PERF_HUD = "perfHud";
+	private static final String KEY_OVERLAY_PROCESS = "overlayProcess";
+	private static final String KEY_OPAQUE_OVERLAY = "opaqueOverlay";
+	private static final String KEY_IDLE_TIMEOUT_MINUTES = "idleTimeoutMinutes";
+	private static final String KEY_SAVED_BRIGHTNESS_VALUE = "savedBrightnessValue";
+	private static final String KEY_SAVED_BRIGHTNESS_MODE = "savedBrightnessMode";
+	private static final String KEY_OVERLAY_SHOWN = "overlayShown";
+	private static final String KEY_DIM_LEVEL = "dimLevel";
+	private static final String KEY_CLOCK_ENABLED = "clockEnabled";
 
-	public static final int MAX_TOTAL_DENIALS = 9; // Max total prompts allowed across all sessions and launches
-	public static final int MAX_INITIAL_LAUNCH_PROMPTS = 3; // Max times to show the prompt on first app open (onCreate)
+	public static final int DEFAULT_TAPS_TO_WAKE = 3;
+	public static final int MAX_TAPS_TO_WAKE = 5;
+	public static final int DEFAULT_IDLE_TIMEOUT_MINUTES = 30;
+	public static final int MAX_DIM_LEVEL = 100;
+	public static final int[] IDLE_TIMEOUT_CHOICES_MINUTES = { 0, 5, 15, 30, 60 }; // 0 = never
+
+	// Limits live with the rules that use them in :core
+	public static final int MAX_TOTAL_DENIALS = PermissionPromptPolicy.MAX_TOTAL_DENIALS;
+	public static final int MAX_INITIAL_LAUNCH_PROMPTS = PermissionPromptPolicy.MAX_INITIAL_LAUNCH_PROMPTS;
 
 	private AppPreferencesManager(Context context) {
-		sharedPreferences = context.getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+		this.context = context.getApplicationContext();
+		sharedPreferences = this.context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
 		editor = sharedPreferences.edit();
+		serviceState = this.context.getSharedPreferences(SERVICE_STATE_NAME, Context.MODE_PRIVATE);
+		preventTouch = resolvePreventTouch();
+	}
+
+	/**
+	* Picks up settings written by the other process. Only a stat of the file unless it changed, so
+	* the service in the :overlay process can call it on every show. The service state needs no
+	* reload: the service's own process is the one writing it.
+	*/
+	public void reload() {
+		sharedPreferences = latest(PREF_NAME);
+		editor = sharedPreferences.edit();
+		preventTouch = resolvePreventTouch();
+	}
+
+	/**
+	* The process-wide instance of a prefs file, reloaded first if another process changed it on disk.
+	* MODE_MULTI_PROCESS is deprecated because it cannot reconcile two processes writing one file;
+	* here every file has a single writer process (the app prefs the app, the service state the
+	* service), so it is only ever used to read the other side's file.
+	*/
+	@SuppressWarnings("deprecation")
+	private SharedPreferences latest(String name) {
+		return context.getSharedPreferences(name, Context.MODE_MULTI_PROCESS);
 	}
 
 	public static synchronized AppPreferencesManager getInstance(Context context) {
@@ -58,11 +111,29 @@ public class AppPreferencesManager {
 		editor.putInt(KEY_INITIAL_LAUNCH_PROMPT_COUNT, 0).apply();
 	}
 
+	// --- Prevent touch: chosen in the app (app prefs) or by an overlay command (service state); the later choice wins ---
 	public void setPreventTouch(Boolean preventTouch) {
-		editor.putBoolean(KEY_PREVENT_TOUCH, preventTouch).apply();
+		this.preventTouch = preventTouch;
+		editor.putBoolean(KEY_PREVENT_TOUCH, preventTouch).putLong(KEY_PREVENT_TOUCH_TIME, System.currentTimeMillis())
+				.apply();
+	}
+
+	// For the overlay service, which may run in :overlay and so must not write the app prefs
+	public void setServicePreventTouch(boolean preventTouch) {
+		this.preventTouch = preventTouch;
+		serviceState.edit().putBoolean(KEY_PREVENT_TOUCH, preventTouch)
+				.putLong(KEY_PREVENT_TOUCH_TIME, System.currentTimeMillis()).apply();
 	}
 
+	// As of the last reload(); a choice made in the other process in between shows up with the next one
 	public boolean getPreventTouch() {
+		return preventTouch;
+	}
+
+	private boolean resolvePreventTouch() {
+		if (serviceState.getLong(KEY_PREVENT_TOUCH_TIME, -1) > sharedPreferences.getLong(KEY_PREVENT_TOUCH_TIME, -1)) {
+			return serviceState.getBoolean(KEY_PREVENT_TOUCH, true);
+		}
 		return sharedPreferences.getBoolean(KEY_PREVENT_TOUCH, true);
 	}
 
@@ -75,4 +146,126 @@ public class AppPreferencesManager {
 		return sharedPreferences.getBoolean(KEY_MEDIA_CONTROL_ENABLED, false);
 	}
 
+	// Keep the black overlay window pre-attached and only toggle its visibility
+	public void setWarmOverlayEnabled(boolean warmOverlay) {
+		editor.putBoolean(KEY_WARM_OVERLAY, warmOverlay).apply();
+	}
+
+	public boolean getWarmOverlayEnabled() {
+		return sharedPreferences.getBoolean(KEY_WARM_OVERLAY, true);
+	}
+
+	// One of the ClockFace.STYLE_* constants
+	public void setClockStyle(int clockStyle) {
+		editor.putInt(KEY_CLOCK_STYLE, clockStyle).apply();
+	}
+
+	public int getClockStyle() {
+		return sharedPreferences.getInt(KEY_CLOCK_STYLE, ClockFace.STYLE_CLASSIC);
+	}
+
+	// --- Floating Button Position (service state) ---
+	public void setFloatingButtonPosition(int x, int y) {
+		serviceState.edit().putInt(KEY_FLOATING_BUTTON_X, x).putInt(KEY_FLOATING_BUTTON_Y, y).apply();
+	}
+
+	// Falls back to where older versions kept the position
+	public int getFloatingButtonX() {
+		return serviceState.getInt(KEY_FLOATING_BUTTON_X, sharedPreferences.getInt(KEY_FLOATING_BUTTON_X, 0));
+	}
+
+	public int getFloatingButtonY() {
+		return serviceState.getInt(KEY_FLOATING_BUTTON_Y, sharedPreferences.getInt(KEY_FLOATING_BUTTON_Y, 100));
+	}
+
+	// --- System brightness saved while dimmed (service state), so a restarted service can restore it ---
+	public void setSavedSystemBrightness(int value, int mode) {
+		serviceState.edit().putInt(KEY_SAVED_BRIGHTNESS_VALUE, value).putInt(KEY_SAVED_BRIGHTNESS_MODE, mode).apply();
+	}
+
+	public void clearSavedSystemBrightness() {
+		serviceState.edit().remove(KEY_SAVED_BRIGHTNESS_VALUE).remove(KEY_SAVED_BRIGHTNESS_MODE).apply();
+	}
+
+	public int getSavedSystemBrightnessValue() {
+		return serviceState.getInt(KEY_SAVED_BRIGHTNESS_VALUE, BrightnessState.UNKNOWN);
+	}
+
+	public int getSavedSystemBrightnessMode() {
+		return serviceState.getInt(KEY_SAVED_BRIGHTNESS_MODE, BrightnessState.UNKNOWN);
+	}
+
+	// --- Whether the black screen is up (service state), read by the Quick Settings tile ---
+	public void setOverlayShown(boolean shown) {
+		serviceState.edit().putBoolean(KEY_OVERLAY_SHOWN, shown).apply();
+	}
+
+	// The tile runs in the app process while the service may be in :overlay, so read past the cache
+	public boolean isOverlayShown() {
+		return latest(SERVICE_STATE_NAME).getBoolean(KEY_OVERLAY_SHOWN, false);
+	}
+
+	// --- Dim level (service state): untouchable overlay window brightness in percent, 0 = panel minimum ---
+	public void setDimLevel(int level) {
+		serviceState.edit().putInt(KEY_DIM_LEVEL, level).apply();
+	}
+
+	public int getDimLevel() {
+		return serviceState.getInt(KEY_DIM_LEVEL, 0);
+	}
+
+	// --- Clock on the untouchable overlay (service state) ---
+	public void setClockEnabled(boolean enabled) {
+		serviceState.edit().putBoolean(KEY_CLOCK_ENABLED, enabled).apply();
+	}
+
+	public boolean getClockEnabled() {
+		return serviceState.getBoolean(KEY_CLOCK_ENABLED, true);
+	}
+
+	// --- Taps To Wake (unlock the untouchable overlay) ---
+	public void setTapsToWake(int taps) {
+		editor.putInt(KEY_TAPS_TO_WAKE, taps).apply();
+	}
+
+	public int getTapsToWake() {
+		return sharedPreferences.getInt(KEY_TAPS_TO_WAKE, DEFAULT_TAPS_TO_WAKE);
+	}
+
+	// --- Performance HUD (developer option) ---
+	public void setPerfHudEnabled(boolean enabled) {
+		editor.putBoolean(KEY_PERF_HUD, enabled).apply();
+	}
+
+	public boolean getPerfHudEnabled() {
+		return sharedPreferences.getBoolean(KEY_PERF_HUD, false);
+	}
+
+	// --- Idle timeout: minutes without interaction before the floating button is released, 0 = never ---
+	public void setIdleTimeoutMinutes(int minutes) {
+		editor.putInt(KEY_IDLE_TIMEOUT_MINUTES, minutes).apply();
+	}
+
+	public int getIdleTimeoutMinutes() {
+		return sharedPreferences.getInt(KEY_IDLE_TIMEOUT_MINUTES, DEFAULT_IDLE_TIMEOUT_MINUTES);
+	}
+
+	// --- Opaque overlay windows, so SurfaceFlinger can skip the layers underneath ---
+	public void setOpaqueOverlayEnabled(boolean enabled) {
+		editor.putBoolean(KEY_OPAQUE_OVERLAY, enabled).apply();
+	}
+
+	public boolean getOpaqueOverlayEnabled() {
+		return sharedPreferences.getBoolean(KEY_OPAQUE_OVERLAY, true);
+	}
+
+	// --- Host the service in the separate :overlay process ---
+	public void setOverlayProcessEnabled(boolean enabled) {
+		editor.putBoolean(KEY_OVERLAY_PROCESS, enabled).apply();
+	}
+
+	public boolean getOverlayProcessEnabled() {
+		return sharedPreferences.getBoolean(KEY_OVERLAY_PROCESS, false);
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.content.Context;
+import android.os.BatteryManager;
+
+// BatterySource backed by the fuel gauge; both properties return Long.MIN_VALUE when unsupported
+public class BatteryManagerSource implements BatterySource {
+
+	private final BatteryManager batteryManager;
+
+	public BatteryManagerSource(Context context) {
+		batteryManager = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+	}
+
+	@Override
+	public long currentNowMicroAmps() {
+		return batteryManager.getLongProperty(BatteryManager.BATTERY_PROPERTY_CURRENT_NOW);
+	}
+
+	@Override
+	public long chargeCounterMicroAmpHours() {
+		return batteryManager.getLongProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+	}
+}
@@ -0,0 +1,98 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.content.Context;
+import android.os.Handler;
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+* Battery A/B run: steps the overlay through each configuration for a fixed time and samples the
+* battery at a low fixed rate. Samples are kept in memory and written as one CSV file at the end,
+* so the measurement itself does not wake the storage. Unplug the device and keep the screen
+* timeout longer than the whole run, otherwise screen-off time is measured instead.
+*
+* The schedule and the sampling are BatteryRun in :core; this class posts its samples on the
+* handler and writes the file.
+*/
+public class BatteryMeasurement {
+
+	public interface Target extends BatteryRun.Target {
+		void onMeasurementFinished(File csv);
+	}
+
+	private static final String TAG = "BatteryMeasurement";
+
+	private final Context context;
+	private final Handler handler;
+	private final TimeSource timeSource;
+	private final Target target;
+	private final BatteryRun run;
+	private final Runnable sampleRunnable = this::sample;
+
+	public BatteryMeasurement(Context context, Handler handler, BatterySource source, TimeSource timeSource,
+			Target target) {
+		this.context = context.getApplicationContext();
+		this.handler = handler;
+		this.timeSource = timeSource;
+		this.target = target;
+		run = new BatteryRun(source, timeSource, target);
+	}
+
+	public boolean isRunning() {
+		return run.isRunning();
+	}
+
+	public void start() {
+		if (run.isRunning()) {
+			return;
+		}
+		long next = run.start();
+		logStep();
+		handler.postAtTime(sampleRunnable, next);
+	}
+
+	// Drops the run without writing anything
+	public void cancel() {
+		if (run.isRunning()) {
+			run.cancel();
+			handler.removeCallbacks(sampleRunnable);
+		}
+	}
+
+	private void sample() {
+		int config = run.getConfig();
+		long next = run.sample();
+		if (next == BatteryRun.FINISHED) {
+			target.onMeasurementFinished(writeCsv());
+			return;
+		}
+		if (run.getConfig() != config) {
+			logStep();
+		}
+		handler.postAtTime(sampleRunnable, next);
+	}
+
+	private void logStep() {
+		Log.d(TAG, "Step " + run.getConfig() + ": " + run.getLabel());
+	}
+
+	private File writeCsv() {
+		File dir = context.getExternalFilesDir(null);
+		if (dir == null) {
+			dir = context.getFilesDir();
+		}
+		File file = new File(dir, "battery_ab_" + timeSource.currentTimeMillis() + ".csv");
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+			writer.append(run.getCsv());
+		} catch (IOException e) {
+			Log.e(TAG, "Failed to write " + file + ": " + e.getMessage());
+			return null;
+		}
+		Log.d(TAG, "Wrote " + file);
+		return file;
+	}
+}
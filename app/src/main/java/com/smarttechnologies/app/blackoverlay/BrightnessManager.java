@@ -1,25 +1,67 @@
 package com.smarttechnologies.app.blackoverlay;
 
-import android.content.ContentResolver;
 import android.content.Context;
 import android.provider.Settings;
 import android.util.Log;
 import android.view.WindowManager;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+* Window brightness is set on the caller's (overlay) thread as part of the window params. The
+* Settings.System reads and writes are binder calls into the settings provider, so they run in
+* order on a single background thread and never hold up the overlay's first frame.
+*/
 public class BrightnessManager {
 	private static final String TAG = "BrightnessManager";
 	private static final int SYSTEM_BRIGHTNESS_MIN = 1;
 	private static final float WINDOW_BRIGHTNESS_ABSOLUTE_MIN = 0.00f;
+	private static final float WINDOW_BRIGHTNESS_MAX = 1.00f;
 
-	private Context context;
+	private final PerfStats perfStats = PerfStats.getInstance();
+	private final ToggleBudget toggleBudget = ToggleBudget.getInstance();
 	private WindowManager.LayoutParams overlayParams;
 
-	private int originalSystemBrightnessValue = -1;
-	private int originalSystemBrightnessMode = -1;
-	public boolean isSystemBrightnessControlled = false;
+	private final BrightnessState state = new BrightnessState();
+	private final AppPreferencesManager prefs;
+	private final SystemSettings settings;
+	private final ExecutorService settingsExecutor = Executors.newSingleThreadExecutor();
 
 	public BrightnessManager(Context context) {
-		this.context = context.getApplicationContext();
+		this(context, new ProviderSystemSettings(context));
+	}
+
+	public BrightnessManager(Context context, SystemSettings settings) {
+		this.settings = settings;
+		prefs = AppPreferencesManager.getInstance(context);
+	}
+
+	/**
+	* Puts back a system brightness that was saved by a service instance that died while dimmed
+	* (process killed, or the other process variant). Call once when the service starts.
+	*/
+	public void restoreSavedBrightness() {
+		settingsExecutor.execute(() -> {
+			int value = prefs.getSavedSystemBrightnessValue();
+			if (value == BrightnessState.UNKNOWN || state.isControlled()) {
+				return;
+			}
+			state.save(value, prefs.getSavedSystemBrightnessMode());
+			state.setControlled(true);
+			Log.d(TAG, "Restoring system brightness left by a previous instance: " + value);
+			// Not part of a toggle
+			restoreSystemBrightness(0);
+		});
+	}
+
+	// Runs after every settings write queued so far
+	public void runAfterPendingWrites(Runnable runnable) {
+		settingsExecutor.execute(runnable);
+	}
+
+	// Queued writes (a final restore) still run; nothing new is accepted
+	public void release() {
+		settingsExecutor.shutdown();
 	}
 
 	// Call this method before applying brightness to set the target overlay params
@@ -28,71 +70,121 @@ public class BrightnessManager {
 	}
 
 	public void applyCombinedBrightness() {
+		OverlayTrace.begin(OverlayTrace.APPLY_BRIGHTNESS);
 		Log.d(TAG, "Applying combined brightness control.");
 		applySystemBrightnessOnly();
-		applyInAppWindowBrightness();
+		applyWindowBrightness();
+		OverlayTrace.end();
 	}
 
+	// Settings calls are counted against the toggle cycle that queued them, not the one running when they execute
 	public void applySystemBrightnessOnly() {
-		ContentResolver cResolver = context.getContentResolver();
+		int cycle = toggleBudget.currentCycle();
+		settingsExecutor.execute(() -> applySystemBrightness(cycle));
+	}
+
+	private void applySystemBrightness(int cycle) {
 		try {
-			// Save original values
-			originalSystemBrightnessValue = Settings.System.getInt(cResolver, Settings.System.SCREEN_BRIGHTNESS);
-			originalSystemBrightnessMode = Settings.System.getInt(cResolver, Settings.System.SCREEN_BRIGHTNESS_MODE);
-
-			// Switch to manual mode if needed
-			if (originalSystemBrightnessMode == Settings.System.SCREEN_BRIGHTNESS_MODE_AUTOMATIC) {
-				Settings.System.putInt(cResolver, Settings.System.SCREEN_BRIGHTNESS_MODE,
-						Settings.System.SCREEN_BRIGHTNESS_MODE_MANUAL);
+			// Save original values, switching to manual mode if needed
+			int value = settings.getInt(Settings.System.SCREEN_BRIGHTNESS);
+			toggleBudget.countSettingsRead(cycle);
+			int mode = settings.getInt(Settings.System.SCREEN_BRIGHTNESS_MODE);
+			toggleBudget.countSettingsRead(cycle);
+			boolean needsManualMode = state.save(value, mode);
+			// Persisted before touching anything, so a crash while dimmed can still be undone
+			prefs.setSavedSystemBrightness(value, mode);
+			if (needsManualMode) {
+				settings.putInt(Settings.System.SCREEN_BRIGHTNESS_MODE, Settings.System.SCREEN_BRIGHTNESS_MODE_MANUAL);
+				perfStats.settingsWrites.increment();
+				toggleBudget.countSettingsWrite(cycle);
 			}
 			// Set to min
-			Settings.System.putInt(cResolver, Settings.System.SCREEN_BRIGHTNESS, SYSTEM_BRIGHTNESS_MIN);
-			isSystemBrightnessControlled = true;
+			settings.putInt(Settings.System.SCREEN_BRIGHTNESS, SYSTEM_BRIGHTNESS_MIN);
+			perfStats.settingsWrites.increment();
+			toggleBudget.countSettingsWrite(cycle);
+			state.setControlled(true);
+			perfStats.systemBrightness = SYSTEM_BRIGHTNESS_MIN;
+			perfStats.systemBrightnessControlled = true;
+			OverlayEventLog.getInstance().record(OverlayEventLog.EVENT_BRIGHTNESS_APPLY, SYSTEM_BRIGHTNESS_MIN);
+			OverlayTrace.counter(OverlayTrace.COUNTER_SYSTEM_BRIGHTNESS, SYSTEM_BRIGHTNESS_MIN);
 
 		} catch (Exception e) {
 			Log.e(TAG, "Failed to control system brightness: " + e.getMessage());
-			isSystemBrightnessControlled = false;
+			state.setControlled(false);
+			prefs.clearSavedSystemBrightness();
 		}
 	}
 
 	public void applyInAppWindowBrightness() {
+		if (applyWindowBrightness()) {
+			OverlayEventLog.getInstance().record(OverlayEventLog.EVENT_BRIGHTNESS_APPLY, -1);
+		}
+	}
+
+	private boolean applyWindowBrightness() {
 		if (overlayParams != null) {
-			overlayParams.screenBrightness = WINDOW_BRIGHTNESS_ABSOLUTE_MIN;
-			Log.d(TAG, "Window brightness set to: " + WINDOW_BRIGHTNESS_ABSOLUTE_MIN);
-		} else {
-			Log.e(TAG, "Cannot set window brightness: overlayParams is null");
+			// The dim level is in the service state file, which is already in memory
+			float brightness = WINDOW_BRIGHTNESS_ABSOLUTE_MIN
+					+ (WINDOW_BRIGHTNESS_MAX - WINDOW_BRIGHTNESS_ABSOLUTE_MIN) * prefs.getDimLevel()
+							/ AppPreferencesManager.MAX_DIM_LEVEL;
+			overlayParams.screenBrightness = brightness;
+			perfStats.windowBrightness = brightness;
+			OverlayTrace.counter(OverlayTrace.COUNTER_WINDOW_BRIGHTNESS, (long) (brightness * 1000));
+			Log.d(TAG, "Window brightness set to: " + brightness);
+			return true;
 		}
+		Log.e(TAG, "Cannot set window brightness: overlayParams is null");
+		return false;
 	}
 
 	public void restoreBrightness() {
 		restoreInAppWindowBrightness();
-		if (isSystemBrightnessControlled) {
-			ContentResolver cResolver = context.getContentResolver();
+		int cycle = toggleBudget.currentCycle();
+		settingsExecutor.execute(() -> restoreSystemBrightness(cycle));
+	}
+
+	private void restoreSystemBrightness(int cycle) {
+		OverlayTrace.begin(OverlayTrace.RESTORE_BRIGHTNESS);
+		OverlayEventLog.getInstance().record(OverlayEventLog.EVENT_BRIGHTNESS_RESTORE,
+				state.isControlled() ? state.getOriginalValue() : -1);
+		if (state.isControlled()) {
 			try {
-				if (originalSystemBrightnessMode != -1) {
-					Settings.System.putInt(cResolver, Settings.System.SCREEN_BRIGHTNESS_MODE,
-							originalSystemBrightnessMode);
+				if (state.hasOriginalMode()) {
+					settings.putInt(Settings.System.SCREEN_BRIGHTNESS_MODE, state.getOriginalMode());
+					perfStats.settingsWrites.increment();
+					toggleBudget.countSettingsWrite(cycle);
 				}
-				if (originalSystemBrightnessValue != -1) {
-					Settings.System.putInt(cResolver, Settings.System.SCREEN_BRIGHTNESS, originalSystemBrightnessValue);
+				if (state.hasOriginalValue()) {
+					settings.putInt(Settings.System.SCREEN_BRIGHTNESS, state.getOriginalValue());
+					perfStats.settingsWrites.increment();
+					toggleBudget.countSettingsWrite(cycle);
+					perfStats.systemBrightness = state.getOriginalValue();
+					OverlayTrace.counter(OverlayTrace.COUNTER_SYSTEM_BRIGHTNESS, state.getOriginalValue());
 				}
-				isSystemBrightnessControlled = false;
+				state.setControlled(false);
+				perfStats.systemBrightnessControlled = false;
+				prefs.clearSavedSystemBrightness();
 			} catch (SecurityException e) {
 				Log.e(TAG, "Failed to restore system brightness: " + e.getMessage());
 			}
 		}
+		OverlayTrace.end();
 	}
 
 	private void restoreInAppWindowBrightness() {
 		if (overlayParams != null) {
 			overlayParams.screenBrightness = WindowManager.LayoutParams.BRIGHTNESS_OVERRIDE_NONE;
+			perfStats.windowBrightness = WindowManager.LayoutParams.BRIGHTNESS_OVERRIDE_NONE;
+			OverlayTrace.counter(OverlayTrace.COUNTER_WINDOW_BRIGHTNESS,
+					(long) (WindowManager.LayoutParams.BRIGHTNESS_OVERRIDE_NONE * 1000));
 		}
 	}
 
+	public boolean isSystemBrightnessControlled() {
+		return state.isControlled();
+	}
+
 	public boolean canWriteSystemSettings() {
-		if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.M) {
-			return Settings.System.canWrite(context);
-		}
-		return true;
+		return settings.canWrite();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+/**
+* Style 1: bold time over the date, matching the original overlay layout (48sp / 18sp, 8dp apart).
+*/
+public class ClassicClockFace extends GlyphClockFace {
+
+	public ClassicClockFace() {
+		super(new GlyphRow[] { new GlyphRow(48, Typeface.DEFAULT_BOLD), new GlyphRow(18, Typeface.DEFAULT) },
+				new float[] { 8 });
+	}
+
+	@Override
+	public void update(CharSequence time, CharSequence date, int changed, Rect dirty) {
+		if ((changed & ClockFormatter.TIME_CHANGED) != 0) {
+			row(0).set(time, 0, time.length(), dirty);
+		}
+		if ((changed & ClockFormatter.DATE_CHANGED) != 0) {
+			row(1).set(date, 0, date.length(), dirty);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+/**
+* A clock style drawn by {@link ClockFaceView}. Implementations measure their glyphs once in
+* {@link #onLayout}, so per-tick updates only compare characters and report what must be redrawn.
+*/
+public interface ClockFace {
+
+	int STYLE_CLASSIC = 0;
+	int STYLE_LIGHT = 1;
+	int STYLE_STACKED = 2;
+
+	// Called whenever the view size or density changes
+	void onLayout(int width, int height, float scaledDensity);
+
+	// Takes the formatter buffers and the ClockFormatter change mask; adds changed regions to dirty
+	void update(CharSequence time, CharSequence date, int changed, Rect dirty);
+
+	void draw(Canvas canvas);
+
+	static ClockFace forStyle(int style) {
+		switch (style) {
+		case STYLE_LIGHT:
+			return new LightClockFace();
+		case STYLE_STACKED:
+			return new StackedClockFace();
+		case STYLE_CLASSIC:
+		default:
+			return new ClassicClockFace();
+		}
+	}
+}
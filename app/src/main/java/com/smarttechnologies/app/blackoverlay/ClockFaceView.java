@@ -0,0 +1,126 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+/**
+* The whole untouchable overlay in one view: the selected {@link ClockFace} plus the unlock hint.
+* It is always MATCH_PARENT, so clock ticks only invalidate the changed region and never relayout.
+*/
+public class ClockFaceView extends View implements ClockUtils.OnClockChangedListener {
+
+	private static final int UNLOCK_COLOR = 0xfff48fb1;
+	private static final float UNLOCK_TEXT_SIZE_SP = 16;
+	private static final float UNLOCK_MARGIN_BOTTOM_DP = 48;
+
+	private ClockFace clockFace;
+	private int clockStyle = -1;
+	private boolean clockVisible = true;
+	private CharSequence time = "";
+	private CharSequence date = "";
+	private final Rect dirty = new Rect();
+	// Built from the current time only when accessibility asks for it, not on every tick
+	private final StringBuilder description = new StringBuilder(128);
+	private boolean descriptionStale = true;
+
+	private final Paint unlockPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final String unlockText;
+	private final String unlockDescription;
+	private float unlockX;
+	private float unlockBaseline;
+
+	public ClockFaceView(Context context) {
+		this(context, null);
+	}
+
+	public ClockFaceView(Context context, AttributeSet attrs) {
+		super(context, attrs);
+		unlockText = context.getString(R.string.unlock);
+		unlockDescription = context.getString(R.string.unlock_description);
+		unlockPaint.setColor(UNLOCK_COLOR);
+		// Set once so the view counts as described; the full text comes from getContentDescription()
+		setContentDescription(unlockDescription);
+		setClockStyle(ClockFace.STYLE_CLASSIC);
+	}
+
+	public void setClockStyle(int style) {
+		if (style == clockStyle) {
+			return;
+		}
+		clockStyle = style;
+		clockFace = ClockFace.forStyle(style);
+		if (getWidth() > 0) {
+			layoutContent(getWidth(), getHeight());
+			invalidate();
+		}
+	}
+
+	// The warm overlay doubles as the plain black touchable screen with the clock hidden
+	public void setClockVisible(boolean visible) {
+		if (clockVisible != visible) {
+			clockVisible = visible;
+			invalidate();
+		}
+	}
+
+	@Override
+	public void onClockChanged(CharSequence time, CharSequence date, int changed) {
+		this.time = time;
+		this.date = date;
+		dirty.setEmpty();
+		clockFace.update(time, date, changed, dirty);
+		descriptionStale = true;
+		if (clockVisible && !dirty.isEmpty()) {
+			invalidate(dirty);
+		}
+	}
+
+	@Override
+	public CharSequence getContentDescription() {
+		if (descriptionStale) {
+			descriptionStale = false;
+			description.setLength(0);
+			description.append("Current time is ").append(time).append(". Today's date is ").append(date).append(". ")
+					.append(unlockDescription);
+		}
+		return description;
+	}
+
+	@Override
+	public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+		super.onInitializeAccessibilityNodeInfo(info);
+		// The node copies it, so handing out the reused builder is safe
+		info.setContentDescription(getContentDescription());
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		layoutContent(w, h);
+	}
+
+	private void layoutContent(int width, int height) {
+		float scaledDensity = getResources().getDisplayMetrics().scaledDensity;
+		clockFace.onLayout(width, height, scaledDensity);
+		clockFace.update(time, date, ClockFormatter.TIME_CHANGED | ClockFormatter.DATE_CHANGED, dirty);
+
+		unlockPaint.setTextSize(UNLOCK_TEXT_SIZE_SP * scaledDensity);
+		unlockX = (width - unlockPaint.measureText(unlockText)) / 2;
+		unlockBaseline = height - UNLOCK_MARGIN_BOTTOM_DP * getResources().getDisplayMetrics().density
+				- unlockPaint.getFontMetrics().descent;
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		if (!clockVisible) {
+			return;
+		}
+		clockFace.draw(canvas);
+		canvas.drawText(unlockText, unlockX, unlockBaseline, unlockPaint);
+	}
+}
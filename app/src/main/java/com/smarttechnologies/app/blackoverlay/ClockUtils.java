@@ -1,47 +1,196 @@
 package com.smarttechnologies.app.blackoverlay;
 
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.text.format.DateFormat;
+import android.view.View;
+import android.view.accessibility.AccessibilityNodeInfo;
 import android.widget.TextView;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Locale;
+import java.util.TimeZone;
 
 public class ClockUtils {
 
+	public interface OnClockChangedListener {
+		// time and date are the formatter's reused buffers; changed is a ClockFormatter mask
+		void onClockChanged(CharSequence time, CharSequence date, int changed);
+	}
+
+	public static final TimeSource SYSTEM_TIME = new TimeSource() {
+		@Override
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public long uptimeMillis() {
+			return SystemClock.uptimeMillis();
+		}
+	};
+
+	private Context context;
 	private Handler handler;
+	private final boolean overlayClock;
 	private Runnable updateTimeRunnable;
+	private BroadcastReceiver timeChangeReceiver;
+	private OnClockChangedListener listener;
+	private boolean paused;
+	private final ClockFormatter formatter = new ClockFormatter();
+	private final MinuteClock minuteClock;
 
-	public ClockUtils() {
-		handler = new Handler(Looper.getMainLooper());
+	// A preview clock in the app UI; its ticks are not the overlay's wakeups
+	public ClockUtils(Context context) {
+		this(context, new Handler(Looper.getMainLooper()), SYSTEM_TIME, false);
+	}
+
+	/**
+	* A handler on a paused looper plus a fake time source lets hours of ticking run in seconds.
+	* overlayClock counts the ticks as overlay wakeups (ToggleBudget, the perf HUD); only the
+	* black-screen clock passes true.
+	*/
+	public ClockUtils(Context context, Handler handler, TimeSource timeSource, boolean overlayClock) {
+		this.context = context.getApplicationContext();
+		this.handler = handler;
+		this.overlayClock = overlayClock;
+		minuteClock = new MinuteClock(timeSource, formatter);
+	}
+
+	// Re-reads locale, zone and the 24h preference; the formatter only rebuilds when one of them changed
+	private void configureFormatter() {
+		formatter.configure(Locale.getDefault(), TimeZone.getDefault(), DateFormat.is24HourFormat(context));
 	}
 
 	public void startUpdatingTime(TextView timeTextView, TextView dateDayTextView) {
-		updateTimeRunnable = new Runnable() {
+		// Content descriptions for accessibility, read from the shown text when a service asks
+		timeTextView.setAccessibilityDelegate(new DescriptionDelegate("Current time is "));
+		dateDayTextView.setAccessibilityDelegate(new DescriptionDelegate("Today's date is "));
+		startUpdatingTime(new OnClockChangedListener() {
 			@Override
-			public void run() {
-				SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
-				String currentTime = timeFormat.format(new Date());
+			public void onClockChanged(CharSequence time, CharSequence date, int changed) {
+				if ((changed & ClockFormatter.TIME_CHANGED) != 0) {
+					timeTextView.setText(time);
+				}
+				if ((changed & ClockFormatter.DATE_CHANGED) != 0) {
+					dateDayTextView.setText(date);
+				}
+			}
+		});
+	}
+
+	// Describes a TextView as a fixed prefix plus its current text. AccessibilityNodeInfo copies the
+	// description, so one builder serves every query.
+	private static final class DescriptionDelegate extends View.AccessibilityDelegate {
+		private final String prefix;
+		private final StringBuilder description = new StringBuilder(48);
+
+		DescriptionDelegate(String prefix) {
+			this.prefix = prefix;
+		}
 
-				SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, MMM dd", Locale.getDefault());
-				String currentDate = dateFormat.format(new Date());
+		@Override
+		public void onInitializeAccessibilityNodeInfo(View host, AccessibilityNodeInfo info) {
+			super.onInitializeAccessibilityNodeInfo(host, info);
+			description.setLength(0);
+			description.append(prefix).append(((TextView) host).getText());
+			info.setContentDescription(description);
+		}
+	}
 
-				timeTextView.setText(currentTime);
-				dateDayTextView.setText(currentDate);
+	public void startUpdatingTime(OnClockChangedListener listener) {
+		// Never run two tickers for the same instance
+		cancelTicker();
+		paused = false;
+		this.listener = listener;
+		configureFormatter();
+		// The listener may be a freshly inflated view; render both lines even within the last shown minute
+		formatter.invalidate();
 
-				// Update content descriptions for accessibility
-				timeTextView.setContentDescription("Current time is " + currentTime);
-				dateDayTextView.setContentDescription("Today's date is " + currentDate);
+		// The initial render, and the fallback for a TIME_TICK that is late or missing
+		updateTimeRunnable = new Runnable() {
+			@Override
+			public void run() {
+				tick();
+			}
+		};
 
-				handler.postDelayed(this, 1000);
+		// TIME_TICK drives the clock, one wakeup per minute; a handler tick of our own on top of it
+		// would be a second one. The others come whenever the wall clock or zone jumps, so a
+		// suspended or skewed uptime clock is re-synced without polling.
+		timeChangeReceiver = new BroadcastReceiver() {
+			@Override
+			public void onReceive(Context context, Intent intent) {
+				if (!Intent.ACTION_TIME_TICK.equals(intent.getAction())) {
+					configureFormatter();
+				}
+				tick();
 			}
 		};
+		IntentFilter filter = new IntentFilter();
+		filter.addAction(Intent.ACTION_TIME_TICK);
+		filter.addAction(Intent.ACTION_TIME_CHANGED);
+		filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+		filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+		context.registerReceiver(timeChangeReceiver, filter, null, handler);
+
 		handler.post(updateTimeRunnable);
 	}
 
+	// Renders and pushes the fallback past the next minute's TIME_TICK, so it only runs when one is missed
+	private void tick() {
+		handler.removeCallbacks(updateTimeRunnable);
+		updateViews();
+		handler.postAtTime(updateTimeRunnable, minuteClock.fallbackUptime());
+	}
+
+	private void updateViews() {
+		OverlayTrace.begin(OverlayTrace.CLOCK_TICK);
+		if (overlayClock) {
+			PerfStats.getInstance().clockWakeups.increment();
+			ToggleBudget.getInstance().countWakeup();
+		}
+		int changed = minuteClock.tick();
+
+		// Only touch the views when the visible text actually changes
+		if (changed != 0) {
+			listener.onClockChanged(formatter.getTime(), formatter.getDate(), changed);
+		}
+		OverlayTrace.end();
+	}
+
+	// Stops ticking but remembers the views so resumeUpdatingTime() can pick them up again
+	public void pauseUpdatingTime() {
+		if (timeChangeReceiver != null) {
+			cancelTicker();
+			paused = true;
+		}
+	}
+
+	// Renders immediately to catch up on anything missed while paused, then continues minute-aligned
+	public void resumeUpdatingTime() {
+		if (paused && listener != null) {
+			paused = false;
+			startUpdatingTime(listener);
+		}
+	}
+
 	public void stopUpdatingTime() {
+		cancelTicker();
+		paused = false;
+		listener = null;
+	}
+
+	private void cancelTicker() {
 		if (handler != null && updateTimeRunnable != null) {
 			handler.removeCallbacks(updateTimeRunnable);
 		}
+		if (timeChangeReceiver != null) {
+			context.unregisterReceiver(timeChangeReceiver);
+			timeChangeReceiver = null;
+		}
 	}
-} 
\ No newline at end of file
+}
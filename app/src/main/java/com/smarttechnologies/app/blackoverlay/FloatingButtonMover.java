@@ -0,0 +1,160 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.WindowManager;
+
+/**
+* Moves the floating button window. Drag positions are written to the params immediately, but
+* the WindowManager relayout is coalesced to at most one per Choreographer frame. After release a
+* fling with friction decays into a spring that snaps the button to the nearest side edge; the
+* final position is saved with a debounced preference write.
+*/
+public class FloatingButtonMover implements Choreographer.FrameCallback {
+
+	private static final float FLING_FRICTION = 4f; // 1/s, exponential velocity decay on y
+	private static final float SPRING_STIFFNESS = 300f; // 1/s^2
+	private static final float SPRING_DAMPING = 28f; // 1/s, slightly under critical damping
+	private static final float REST_VELOCITY = 20f; // px/s
+	private static final float REST_DISTANCE = 0.5f; // px
+	private static final float FLING_PROJECTION_S = 0.2f; // how far ahead the release velocity picks the edge
+	private static final float MAX_FRAME_S = 1f / 30;
+	private static final long SAVE_DELAY_MS = 500;
+
+	private final WindowManager windowManager;
+	private final View view;
+	private final WindowManager.LayoutParams params;
+	private final AppPreferencesManager prefs;
+	private final Choreographer choreographer = Choreographer.getInstance();
+	private final Handler handler = new Handler(Looper.myLooper());
+	private final Runnable savePosition = new Runnable() {
+		@Override
+		public void run() {
+			savePending = false;
+			prefs.setFloatingButtonPosition(params.x, params.y);
+		}
+	};
+
+	private boolean framePosted = false;
+	private boolean layoutPending = false;
+	private boolean animating = false;
+	private boolean savePending = false;
+	private float posX;
+	private float posY;
+	private float velX;
+	private float velY;
+	private float targetX;
+	private int maxX;
+	private int maxY;
+	private long lastFrameNanos;
+
+	public FloatingButtonMover(WindowManager windowManager, View view, WindowManager.LayoutParams params,
+			AppPreferencesManager prefs) {
+		this.windowManager = windowManager;
+		this.view = view;
+		this.params = params;
+		this.prefs = prefs;
+	}
+
+	public void dragTo(int x, int y) {
+		animating = false;
+		params.x = x;
+		params.y = y;
+		requestLayout();
+	}
+
+	// Velocities in px/s
+	public void fling(float velocityX, float velocityY) {
+		DisplayMetrics metrics = view.getResources().getDisplayMetrics();
+		maxX = Math.max(0, metrics.widthPixels - view.getWidth());
+		maxY = Math.max(0, metrics.heightPixels - view.getHeight());
+		posX = params.x;
+		posY = params.y;
+		velX = velocityX;
+		velY = velocityY;
+		targetX = posX + velX * FLING_PROJECTION_S < maxX / 2f ? 0 : maxX;
+		lastFrameNanos = 0;
+		animating = true;
+		postFrame();
+	}
+
+	// Stops any running fling, leaving the button where it currently is
+	public void stop() {
+		animating = false;
+	}
+
+	public void release() {
+		animating = false;
+		choreographer.removeFrameCallback(this);
+		framePosted = false;
+		if (savePending) {
+			handler.removeCallbacks(savePosition);
+			savePosition.run();
+		}
+	}
+
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		framePosted = false;
+		if (animating) {
+			step(frameTimeNanos);
+		}
+		if (layoutPending) {
+			layoutPending = false;
+			if (view.isAttachedToWindow()) {
+				windowManager.updateViewLayout(view, params);
+			}
+		}
+		if (animating) {
+			postFrame();
+		}
+	}
+
+	private void step(long frameTimeNanos) {
+		float dt = lastFrameNanos == 0 ? 0 : Math.min((frameTimeNanos - lastFrameNanos) / 1e9f, MAX_FRAME_S);
+		lastFrameNanos = frameTimeNanos;
+
+		// Spring on x towards the chosen edge, friction-decayed fling on y
+		float accelX = -SPRING_STIFFNESS * (posX - targetX) - SPRING_DAMPING * velX;
+		velX += accelX * dt;
+		posX += velX * dt;
+		velY *= (float) Math.exp(-FLING_FRICTION * dt);
+		posY += velY * dt;
+		if (posY < 0 || posY > maxY) {
+			posY = Math.max(0, Math.min(maxY, posY));
+			velY = 0;
+		}
+
+		boolean atRest = Math.abs(posX - targetX) < REST_DISTANCE && Math.abs(velX) < REST_VELOCITY
+				&& Math.abs(velY) < REST_VELOCITY;
+		if (atRest) {
+			posX = targetX;
+			animating = false;
+			scheduleSave();
+		}
+		params.x = Math.round(posX);
+		params.y = Math.round(posY);
+		layoutPending = true;
+	}
+
+	private void requestLayout() {
+		layoutPending = true;
+		postFrame();
+	}
+
+	private void postFrame() {
+		if (!framePosted) {
+			framePosted = true;
+			choreographer.postFrameCallback(this);
+		}
+	}
+
+	private void scheduleSave() {
+		handler.removeCallbacks(savePosition);
+		handler.postDelayed(savePosition, SAVE_DELAY_MS);
+		savePending = true;
+	}
+}
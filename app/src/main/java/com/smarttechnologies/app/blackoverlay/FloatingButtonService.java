@@ -1,21 +1,33 @@
 package com.smarttechnologies.app.blackoverlay;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.IntentFilter;
+import android.hardware.display.DisplayManager;
 import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
 import android.app.Notification;
 import android.app.NotificationManager;
 import android.app.NotificationChannel;
+import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Intent;
 import android.graphics.PixelFormat;
+import android.graphics.drawable.Icon;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
 import android.os.VibratorManager;
+import android.view.Display;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.os.IBinder;
+import android.provider.Settings;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.WindowInsets;
 import android.view.WindowInsetsController;
@@ -23,57 +35,182 @@ import android.view.WindowManager;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewTreeObserver;
 import android.widget.ImageView;
 import androidx.core.view.WindowCompat;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.Locale;
 import java.util.Date;
 import java.text.SimpleDateFormat;
 
 public class FloatingButtonService extends Service {
 
+	private static final String TAG = "FloatingButtonService";
 	private WindowManager windowManager;
 	private AppPreferencesManager appSettingsManager;
 	private ClockUtils clockUtils;
 	private BrightnessManager brightnessManager;
 	private View floatingView;
-	private View blackScreenOverlay;
-	private TextView timeTextView;
-	private TextView dateDayTextView;
+	private FloatingButtonMover floatingButtonMover;
+	private GestureRecognizer floatingButtonGesture;
+	private GestureRecognizer unlockGesture;
+	private OverlaySession overlaySession;
+	private ClockFaceView clockFaceView;
+	private DisplayManager displayManager;
+	private DisplayManager.DisplayListener displayListener;
+	private BroadcastReceiver screenStateReceiver;
+	private boolean screenOn = true;
+	private boolean opaqueOverlay;
+	private View warmOverlayView;
+	private WindowManager.LayoutParams parkedOverlayParams;
+	private long warmLatencyTotalMs;
+	private int warmLatencyCount;
+	private long coldLatencyTotalMs;
+	private int coldLatencyCount;
+	private int tapToBlackCookie;
+	private final OverlayEventLog eventLog = OverlayEventLog.getInstance();
+	private PerfHud perfHud;
+	private final ToggleBudget toggleBudget = ToggleBudget.getInstance();
+	private int toggleCycle;
+	private HandlerThread overlayThread;
+	private Handler overlayHandler;
+	private WindowManager.LayoutParams floatingParams;
+	private boolean idle = false;
+	private final Runnable enterIdleRunnable = this::enterIdle;
+	private static final int NOTIFICATION_ID = 1;
+	private Notification notification;
+	private String notificationText;
+	private WindowManager.LayoutParams overlayParams;
+	private final CommandDebouncer commandDebouncer = new CommandDebouncer(COMMAND_DEDUP_MS);
+	private OverlayMessenger overlayMessenger;
+	public static final String ACTION_SHOW_BUTTON = "com.smarttechnologies.app.blackoverlay.action.SHOW_BUTTON";
+	private BatteryMeasurement batteryMeasurement;
+	public static final String ACTION_MEASURE_BATTERY = "com.smarttechnologies.app.blackoverlay.action.MEASURE_BATTERY";
+	// Overlay commands. Each states the result it wants (except TOGGLE), so repeating one is harmless;
+	// identical commands within COMMAND_DEDUP_MS are dropped before they reach the overlay thread.
+	public static final String ACTION_SHOW = "com.smarttechnologies.app.blackoverlay.action.SHOW";
+	public static final String ACTION_HIDE = "com.smarttechnologies.app.blackoverlay.action.HIDE";
+	public static final String ACTION_TOGGLE = "com.smarttechnologies.app.blackoverlay.action.TOGGLE";
+	public static final String ACTION_SET_DIM_LEVEL = "com.smarttechnologies.app.blackoverlay.action.SET_DIM_LEVEL";
+	public static final String ACTION_SET_TOUCH_MODE = "com.smarttechnologies.app.blackoverlay.action.SET_TOUCH_MODE";
+	public static final String EXTRA_TAP_UPTIME = "com.smarttechnologies.app.blackoverlay.extra.TAP_UPTIME";
+	public static final String EXTRA_DIM_LEVEL = "com.smarttechnologies.app.blackoverlay.extra.DIM_LEVEL"; // 0-100
+	// SET_TOUCH_MODE takes MainActivity.EXTRA_PREVENT_TOUCH; without it the mode is flipped
+	private static final long COMMAND_DEDUP_MS = 500;
 	private static final String CHANNEL_ID = "FloatingButtonServiceChannel";
 	private static final int MAX_CLICK_DURATION = 200; // Maximum duration for a click in milliseconds
+	private static final float SWIPE_MIN_DISTANCE_DP = 96;
 
 	public FloatingButtonService() {
 	}
 
+	// Starts whichever service variant the process option selects
+	public static void start(Context context, String action) {
+		context.startService(newIntent(context, action));
+	}
+
+	// Toggles the overlay from outside the app UI (the Quick Settings tile), starting the service if
+	// needed. tapUptime is the SystemClock.uptimeMillis() of the tap, which is the same clock in every
+	// process, so tap-to-black is measured from the tile. Holding SYSTEM_ALERT_WINDOW lets this
+	// foreground start go through while the app is in the background.
+	public static void toggle(Context context, long tapUptime) {
+		Intent intent = newIntent(context, ACTION_TOGGLE).putExtra(EXTRA_TAP_UPTIME, tapUptime);
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+			context.startForegroundService(intent);
+		} else {
+			context.startService(intent);
+		}
+	}
+
+	/**
+	* Call after the process option changed. Stops the variant the old setting selected, so only one
+	* runs, and starts the new one in its place if the old one was running. Commands themselves only
+	* ever go to the selected variant.
+	*/
+	public static void switchProcess(Context context, boolean separate) {
+		Intent previous = new Intent(context, separate ? FloatingButtonService.class : OverlayProcessService.class);
+		if (context.stopService(previous)) {
+			start(context, null);
+		}
+	}
+
+	private static Intent newIntent(Context context, String action) {
+		boolean separate = AppPreferencesManager.getInstance(context).getOverlayProcessEnabled();
+		Intent intent = new Intent(context, separate ? OverlayProcessService.class : FloatingButtonService.class);
+		if (action != null) {
+			intent.setAction(action);
+		}
+		return intent;
+	}
+
+	// Overridden by OverlayProcessService, which runs apart from the process that writes the settings
+	protected boolean isSeparateProcess() {
+		return false;
+	}
+
+	// Overridden by the unit tests to count the Settings.System calls of a toggle
+	protected SystemSettings createSystemSettings() {
+		return new ProviderSystemSettings(this);
+	}
+
+	protected void requestTileUpdate() {
+		OverlayTileService.requestUpdate(this);
+	}
+
+	// For the unit tests, which drive the overlay thread directly
+	Looper getOverlayLooper() {
+		return overlayThread.getLooper();
+	}
+
+	// For the unit tests; runs after the settings writes queued so far, where a hide's budget check also runs
+	void runAfterPendingSettingsWrites(Runnable runnable) {
+		getBrightnessManager().runAfterPendingWrites(runnable);
+	}
+
+	// Automation clients, see OverlayMessenger; binding requires PERMISSION_CONTROL_OVERLAY
 	@Override
 	public IBinder onBind(Intent intent) {
-		return null;
+		return overlayMessenger.getMessenger().getBinder();
 	}
 
 	@Override
 	public void onCreate() {
 		super.onCreate();
+		final long createUptime = SystemClock.uptimeMillis();
+		// Closed once the floating button's first frame is on screen; one service instance per process
+		OverlayTrace.beginAsync(OverlayTrace.SERVICE_START_TO_BUTTON, 0);
 
-		// Create the notification channel
-		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-			NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Floating Button Service Channel",
-					NotificationManager.IMPORTANCE_DEFAULT);
-			NotificationManager manager = getSystemService(NotificationManager.class);
-			manager.createNotificationChannel(channel);
-		}
+		// A window is driven by the thread that added it. Adding every overlay window from this thread
+		// keeps touch input, the clock and the frame callbacks off the main thread, so jank in
+		// MainActivity (same process) cannot delay them.
+		overlayThread = new HandlerThread("Overlay", Process.THREAD_PRIORITY_DISPLAY);
+		overlayThread.start();
+		overlayHandler = new Handler(overlayThread.getLooper());
+		overlayHandler.post(() -> createFloatingButton(createUptime));
 
-		// Create the notification
-		Notification notification = new Notification.Builder(this, CHANNEL_ID).setContentTitle("Floating Button")
-				.setContentText("Tap to activate black screen").setSmallIcon(R.drawable.ic_play_arrow_white_24dp)
-				.build();
+		// Bound clients are served on the overlay thread too, in order with every other overlay change
+		overlayMessenger = new OverlayMessenger(overlayThread.getLooper(), new OverlayMessenger.Target() {
+			@Override
+			public void applyBatch(Bundle batch) {
+				applyCommandBatch(batch);
+			}
 
-		// Start the service as a foreground service
-		startForeground(1, notification);
+			@Override
+			public Bundle getState() {
+				return getOverlayState();
+			}
+		});
+	}
 
+	// Runs on the overlay thread
+	private void createFloatingButton(long createUptime) {
+		// Only the floating button window is on the critical path. Asking for the prefs first starts
+		// their disk load on a background thread while the button is being inflated.
 		appSettingsManager = AppPreferencesManager.getInstance(this);
-
-		clockUtils = new ClockUtils();
-		brightnessManager = new BrightnessManager(this);
+		windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
 
 		// Inflate the floating button layout
 		floatingView = LayoutInflater.from(this).inflate(R.layout.floating_button_layout, null);
@@ -83,17 +220,39 @@ public class FloatingButtonService extends Service {
 				WindowManager.LayoutParams.WRAP_CONTENT, WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY,
 				WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE, PixelFormat.TRANSLUCENT);
 
-		// Specify the position of the floating button
+		// Specify the position of the floating button, reopening where it was left
 		params.gravity = Gravity.TOP | Gravity.START;
-		params.x = 0;
-		params.y = 100;
+		params.x = appSettingsManager.getFloatingButtonX();
+		params.y = appSettingsManager.getFloatingButtonY();
 
-		// Get the window manager and add the view
-		windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
 		windowManager.addView(floatingView, params);
+		floatingParams = params;
+		reportStartup(createUptime);
 
-		// Find the icon view and set listeners
-		Toast.makeText(FloatingButtonService.this, "floating button showing", Toast.LENGTH_LONG).show();
+		// Start the service as a foreground service
+		createNotificationChannel();
+		notificationText = "Tap to activate black screen";
+		notification = buildNotification();
+		startForeground(NOTIFICATION_ID, notification);
+
+		floatingButtonMover = new FloatingButtonMover(windowManager, floatingView, params, appSettingsManager);
+		// Fixed per service start so the parked warm overlay and the shown one never differ in format
+		opaqueOverlay = appSettingsManager.getOpaqueOverlayEnabled();
+
+		// A single short tap toggles the overlay; anything past the slop is a drag
+		ViewConfiguration viewConfiguration = ViewConfiguration.get(this);
+		float touchSlop = viewConfiguration.getScaledTouchSlop();
+		float swipeDistance = SWIPE_MIN_DISTANCE_DP * getResources().getDisplayMetrics().density;
+		floatingButtonGesture = new GestureRecognizer(1, MAX_CLICK_DURATION, ViewConfiguration.getDoubleTapTimeout(),
+				ViewConfiguration.getLongPressTimeout(), touchSlop, swipeDistance);
+		unlockGesture = new GestureRecognizer(appSettingsManager.getTapsToWake(), ViewConfiguration.getLongPressTimeout(),
+				ViewConfiguration.getDoubleTapTimeout(), ViewConfiguration.getLongPressTimeout(), touchSlop, swipeDistance);
+
+		// Nothing else is needed before the first tap; it runs once the button is up and the queue is idle
+		Looper.myQueue().addIdleHandler(() -> {
+			finishDeferredInit();
+			return false;
+		});
 
 		// Add a combined touch and click listener to the view
 		floatingView.setOnTouchListener(new View.OnTouchListener() {
@@ -101,39 +260,53 @@ public class FloatingButtonService extends Service {
 			private int initialY;
 			private float initialTouchX;
 			private float initialTouchY;
-			private long startClickTime;
-			private final static int CLICK_ACTION_THRESHOLD = 200;
+			// Smoothed drag velocity in px/ms, from raw coordinates since the window itself moves
+			private float lastRawX;
+			private float lastRawY;
+			private long lastEventTime;
+			private float velocityX;
+			private float velocityY;
 
 			@Override
 			public boolean onTouch(View v, MotionEvent event) {
 				switch (event.getAction()) {
 				case MotionEvent.ACTION_DOWN:
+					floatingButtonMover.stop();
 					initialX = params.x;
 					initialY = params.y;
 					initialTouchX = event.getRawX();
 					initialTouchY = event.getRawY();
-					startClickTime = System.currentTimeMillis();
+					floatingButtonGesture.onDown(event.getEventTime(), initialTouchX, initialTouchY);
+					lastRawX = initialTouchX;
+					lastRawY = initialTouchY;
+					lastEventTime = event.getEventTime();
+					velocityX = 0;
+					velocityY = 0;
 					return true;
 
 				case MotionEvent.ACTION_MOVE:
-					params.x = initialX + (int) (event.getRawX() - initialTouchX);
-					params.y = initialY + (int) (event.getRawY() - initialTouchY);
-					windowManager.updateViewLayout(floatingView, params);
+					floatingButtonGesture.onMove(event.getEventTime(), event.getRawX(), event.getRawY());
+					long dt = event.getEventTime() - lastEventTime;
+					if (dt > 0) {
+						velocityX = 0.6f * velocityX + 0.4f * (event.getRawX() - lastRawX) / dt;
+						velocityY = 0.6f * velocityY + 0.4f * (event.getRawY() - lastRawY) / dt;
+					}
+					lastRawX = event.getRawX();
+					lastRawY = event.getRawY();
+					lastEventTime = event.getEventTime();
+					// Relayout happens at most once per frame
+					floatingButtonMover.dragTo(initialX + (int) (event.getRawX() - initialTouchX),
+							initialY + (int) (event.getRawY() - initialTouchY));
 					return true;
 
 				case MotionEvent.ACTION_UP:
-					long clickDuration = System.currentTimeMillis() - startClickTime;
-					if (clickDuration < CLICK_ACTION_THRESHOLD) {
+					scheduleIdle();
+					int gesture = floatingButtonGesture.onUp(event.getEventTime(), event.getRawX(), event.getRawY());
+					if (gesture != GestureRecognizer.GESTURE_TAP_SEQUENCE) {
+						floatingButtonMover.fling(velocityX * 1000, velocityY * 1000);
+					} else {
 						//This is a click event
-						if (blackScreenOverlay == null) {
-							if (appSettingsManager.getPreventTouch()) {
-								showUntouchableBlackScreen();
-							} else {
-								showTouchableBlackScreen();
-							}
-						} else {
-							hideBlackScreen();
-						}
+						toggleOverlay(event.getEventTime());
 					}
 					return true;
 				}
@@ -142,6 +315,457 @@ public class FloatingButtonService extends Service {
 		});
 	}
 
+	private void toggleOverlay(long tapUptime) {
+		if (overlaySession == null) {
+			beginTapToBlack();
+			reloadSettings();
+			if (appSettingsManager.getPreventTouch()) {
+				showUntouchableBlackScreen(tapUptime);
+			} else {
+				showTouchableBlackScreen(tapUptime);
+			}
+		} else {
+			hideBlackScreen();
+		}
+	}
+
+	// Picks up what the app process changed; the touch mode is resolved here once and cached until the next one
+	private void reloadSettings() {
+		if (isSeparateProcess()) {
+			appSettingsManager.reload();
+		}
+	}
+
+	private static boolean isOverlayCommand(String action) {
+		return ACTION_SHOW.equals(action) || ACTION_HIDE.equals(action) || ACTION_TOGGLE.equals(action)
+				|| ACTION_SET_DIM_LEVEL.equals(action) || ACTION_SET_TOUCH_MODE.equals(action);
+	}
+
+	// Action plus argument. A toggle carries its tap time, so only a redelivered tap looks the same.
+	private static String commandKey(Intent intent) {
+		String action = intent.getAction();
+		if (ACTION_SET_DIM_LEVEL.equals(action)) {
+			return action + intent.getIntExtra(EXTRA_DIM_LEVEL, 0);
+		} else if (ACTION_SET_TOUCH_MODE.equals(action) && intent.hasExtra(MainActivity.EXTRA_PREVENT_TOUCH)) {
+			return action + intent.getBooleanExtra(MainActivity.EXTRA_PREVENT_TOUCH, false);
+		} else if (ACTION_TOGGLE.equals(action)) {
+			return action + intent.getLongExtra(EXTRA_TAP_UPTIME, 0);
+		}
+		return action;
+	}
+
+	// Runs on the overlay thread; on a cold start it is queued right behind createFloatingButton()
+	private void handleCommand(Intent intent, long receivedUptime, boolean accepted) {
+		if (accepted) {
+			String action = intent.getAction();
+			long tapUptime = intent.getLongExtra(EXTRA_TAP_UPTIME, receivedUptime);
+			if (intent.hasExtra(EXTRA_TAP_UPTIME)) {
+				eventLog.record(OverlayEventLog.EVENT_TILE_COMMAND, SystemClock.uptimeMillis() - tapUptime);
+			}
+			if (ACTION_SHOW.equals(action)) {
+				if (overlaySession == null) {
+					toggleOverlay(tapUptime);
+				}
+			} else if (ACTION_HIDE.equals(action)) {
+				hideBlackScreen();
+			} else if (ACTION_TOGGLE.equals(action)) {
+				toggleOverlay(tapUptime);
+			} else if (ACTION_SET_DIM_LEVEL.equals(action)) {
+				setDimLevel(intent.getIntExtra(EXTRA_DIM_LEVEL, 0));
+			} else if (ACTION_SET_TOUCH_MODE.equals(action)) {
+				reloadSettings();
+				boolean current = appSettingsManager.getPreventTouch();
+				setTouchMode(intent.getBooleanExtra(MainActivity.EXTRA_PREVENT_TOUCH, !current), tapUptime);
+			}
+			if (overlaySession != null) {
+				// The button is needed to hide the overlay again; brought back after the show, off the tap path
+				overlayHandler.post(this::exitIdle);
+			}
+		}
+		// A foreground start (the tile) has to be answered even when the command changed nothing
+		startForeground(NOTIFICATION_ID, notification);
+	}
+
+	private void setDimLevel(int level) {
+		if (storeDimLevel(level)) {
+			applyDimLevel();
+			publishState();
+		}
+	}
+
+	// Returns whether the level changed
+	private boolean storeDimLevel(int level) {
+		level = Math.max(0, Math.min(AppPreferencesManager.MAX_DIM_LEVEL, level));
+		if (level == appSettingsManager.getDimLevel()) {
+			return false;
+		}
+		appSettingsManager.setDimLevel(level);
+		return true;
+	}
+
+	// Only the untouchable overlay dims its window
+	private void applyDimLevel() {
+		if (overlaySession != null && overlayParams != null) {
+			getBrightnessManager().applyInAppWindowBrightness();
+			overlaySession.update(overlayParams);
+		}
+	}
+
+	// Switching while shown swaps the overlay for the other mode
+	private void setTouchMode(boolean preventTouch, long tapUptime) {
+		if (preventTouch == appSettingsManager.getPreventTouch()) {
+			return;
+		}
+		appSettingsManager.setServicePreventTouch(preventTouch);
+		if (overlaySession != null) {
+			hideBlackScreen();
+			toggleOverlay(tapUptime);
+		} else {
+			publishState();
+		}
+	}
+
+	/**
+	* One OverlayMessenger batch. Settings are stored first and the overlay is then hidden, rebuilt
+	* or shown once in its final form, so a client never sees a half-applied batch.
+	*/
+	private void applyCommandBatch(Bundle batch) {
+		boolean wasShown = overlaySession != null;
+		boolean show = batch.getBoolean(OverlayMessenger.KEY_SHOWN, wasShown);
+		boolean rebuild = false;
+		if (batch.containsKey(OverlayMessenger.KEY_PREVENT_TOUCH)) {
+			reloadSettings();
+			boolean preventTouch = batch.getBoolean(OverlayMessenger.KEY_PREVENT_TOUCH);
+			if (preventTouch != appSettingsManager.getPreventTouch()) {
+				appSettingsManager.setServicePreventTouch(preventTouch);
+				rebuild = true;
+			}
+		}
+		if (batch.containsKey(OverlayMessenger.KEY_CLOCK)) {
+			boolean clock = batch.getBoolean(OverlayMessenger.KEY_CLOCK);
+			if (clock != appSettingsManager.getClockEnabled()) {
+				appSettingsManager.setClockEnabled(clock);
+				// Only the untouchable overlay has a clock
+				rebuild |= appSettingsManager.getPreventTouch();
+			}
+		}
+		boolean dimChanged = batch.containsKey(OverlayMessenger.KEY_DIM_LEVEL)
+				&& storeDimLevel(batch.getInt(OverlayMessenger.KEY_DIM_LEVEL));
+
+		if (wasShown && (!show || rebuild)) {
+			hideBlackScreen();
+		}
+		if (show && overlaySession == null) {
+			toggleOverlay(SystemClock.uptimeMillis());
+			overlayHandler.post(this::exitIdle);
+		} else if (dimChanged) {
+			applyDimLevel();
+		}
+		publishState();
+	}
+
+	private Bundle getOverlayState() {
+		Bundle state = new Bundle();
+		state.putBoolean(OverlayMessenger.KEY_SHOWN, overlaySession != null);
+		state.putInt(OverlayMessenger.KEY_DIM_LEVEL, appSettingsManager.getDimLevel());
+		state.putBoolean(OverlayMessenger.KEY_CLOCK, appSettingsManager.getClockEnabled());
+		state.putBoolean(OverlayMessenger.KEY_PREVENT_TOUCH, appSettingsManager.getPreventTouch());
+		return state;
+	}
+
+	private void publishOverlayState(boolean shown) {
+		appSettingsManager.setOverlayShown(shown);
+		publishState();
+	}
+
+	// Lets the Quick Settings tile, the notification actions and bound clients follow the overlay;
+	// posted so the IPC stays off the tap-to-black path
+	private void publishState() {
+		overlayHandler.post(() -> {
+			requestTileUpdate();
+			updateNotification(notificationText);
+			overlayMessenger.notifyStateChanged();
+		});
+	}
+
+	private void createNotificationChannel() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+			NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Floating Button Service Channel",
+					NotificationManager.IMPORTANCE_DEFAULT);
+			NotificationManager manager = getSystemService(NotificationManager.class);
+			manager.createNotificationChannel(channel);
+		}
+	}
+
+	// Reflects the current overlay state and touch mode; rebuilt by updateNotification() when they change
+	private Notification buildNotification() {
+		// Tapping the notification brings the floating button back after an idle timeout
+		PendingIntent showButton = PendingIntent.getService(this, 0,
+				new Intent(this, getClass()).setAction(ACTION_SHOW_BUTTON), PendingIntent.FLAG_IMMUTABLE);
+
+		// The actions are plain service commands: one start intent each, no activity and no floating window
+		boolean shown = overlaySession != null;
+		boolean preventTouch = appSettingsManager.getPreventTouch();
+		Notification.Action overlayAction = shown
+				? buildAction(1, R.drawable.ic_stop_white_24dp, "Restore", new Intent(ACTION_HIDE))
+				: buildAction(2, R.drawable.ic_play_arrow_white_24dp, "Black screen", new Intent(ACTION_SHOW));
+		Notification.Action touchAction = preventTouch
+				? buildAction(3, R.drawable.ic_lock_open_white_24dp, "Allow touch",
+						new Intent(ACTION_SET_TOUCH_MODE).putExtra(MainActivity.EXTRA_PREVENT_TOUCH, false))
+				: buildAction(4, R.drawable.ic_lock_white_24dp, "Block touch",
+						new Intent(ACTION_SET_TOUCH_MODE).putExtra(MainActivity.EXTRA_PREVENT_TOUCH, true));
+
+		return new Notification.Builder(this, CHANNEL_ID).setContentTitle("Floating Button")
+				.setContentText(notificationText).setSmallIcon(R.drawable.ic_play_arrow_white_24dp)
+				.setContentIntent(showButton).addAction(overlayAction).addAction(touchAction).build();
+	}
+
+	// Each action has its own request code, since PendingIntents that differ only in extras are the same
+	private Notification.Action buildAction(int requestCode, int icon, String title, Intent command) {
+		command.setClass(this, getClass());
+		PendingIntent pendingIntent = PendingIntent.getService(this, requestCode, command, PendingIntent.FLAG_IMMUTABLE);
+		return new Notification.Action.Builder(Icon.createWithResource(this, icon), title, pendingIntent).build();
+	}
+
+	// Logs onCreate to the floating button's first committed frame (after addView before Q)
+	private void reportStartup(long createUptime) {
+		Runnable report = () -> {
+			OverlayTrace.endAsync(OverlayTrace.SERVICE_START_TO_BUTTON, 0);
+			long startupMs = SystemClock.uptimeMillis() - createUptime;
+			eventLog.record(OverlayEventLog.EVENT_SERVICE_START, startupMs);
+			Log.d(TAG, "Service start to floating button visible: " + startupMs + " ms");
+		};
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+			floatingView.getViewTreeObserver().registerFrameCommitCallback(report);
+		} else {
+			report.run();
+		}
+	}
+
+	private void finishDeferredInit() {
+		if (floatingView == null) {
+			// Destroyed before the queue went idle
+			return;
+		}
+		long start = SystemClock.uptimeMillis();
+
+		// Permission state as seen by this service start, for dumpsys
+		eventLog.record(OverlayEventLog.EVENT_PERMISSION_OVERLAY,
+				Build.VERSION.SDK_INT < Build.VERSION_CODES.M || Settings.canDrawOverlays(this) ? 1 : 0);
+		eventLog.record(OverlayEventLog.EVENT_PERMISSION_WRITE_SETTINGS,
+				getBrightnessManager().canWriteSystemSettings() ? 1 : 0);
+
+		// Undo dimming left behind by an instance that was killed while the overlay was shown
+		getBrightnessManager().restoreSavedBrightness();
+		if (overlaySession == null) {
+			publishOverlayState(false);
+		}
+
+		registerScreenStateListeners();
+
+		if (appSettingsManager.getPerfHudEnabled()) {
+			perfHud = new PerfHud(this, windowManager, !isSeparateProcess());
+			perfHud.show();
+			perfHud.setPaused(!screenOn);
+		}
+
+		// Pre-attach the overlay, off the tap-to-black path
+		if (appSettingsManager.getWarmOverlayEnabled()) {
+			prewarmOverlay();
+		}
+
+		Toast.makeText(FloatingButtonService.this, "floating button showing", Toast.LENGTH_LONG).show();
+		scheduleIdle();
+		Log.d(TAG, "Deferred init: " + (SystemClock.uptimeMillis() - start) + " ms");
+	}
+
+	// (Re)arms the idle timer; never while the overlay is shown
+	private void scheduleIdle() {
+		overlayHandler.removeCallbacks(enterIdleRunnable);
+		int minutes = appSettingsManager.getIdleTimeoutMinutes();
+		if (minutes > 0 && overlaySession == null && !idle) {
+			overlayHandler.postDelayed(enterIdleRunnable, minutes * 60 * 1000L);
+		}
+	}
+
+	/**
+	* Drops to the minimal footprint: the floating button window (its surface and composited layer),
+	* the warm overlay, the clock and the brightness manager go; only the notification stays. The
+	* small floating view object itself is kept so coming back is a single addView.
+	*/
+	private void enterIdle() {
+		if (idle || overlaySession != null || floatingView == null) {
+			return;
+		}
+		floatingButtonMover.stop();
+		windowManager.removeView(floatingView);
+		idle = true;
+		unregisterScreenStateListeners();
+		// Nothing to look at without the button; the HUD window stays but stops refreshing
+		if (perfHud != null) {
+			perfHud.setPaused(true);
+		}
+		releaseCaches();
+		updateNotification("Tap to show the floating button");
+		eventLog.record(OverlayEventLog.EVENT_IDLE, 1);
+	}
+
+	private void exitIdle() {
+		if (!idle || floatingView == null) {
+			return;
+		}
+		long start = SystemClock.uptimeMillis();
+		windowManager.addView(floatingView, floatingParams);
+		idle = false;
+		registerScreenStateListeners();
+		if (perfHud != null) {
+			perfHud.setPaused(!screenOn);
+		}
+		updateNotification("Tap to activate black screen");
+		long rehydrateMs = SystemClock.uptimeMillis() - start;
+		eventLog.record(OverlayEventLog.EVENT_IDLE, 0);
+		Log.d(TAG, "Floating button restored from idle in " + rehydrateMs + " ms");
+		// The warm overlay is rebuilt once the button is back, off the tap path
+		prewarmWhenQueueIdle();
+		scheduleIdle();
+	}
+
+	// Rebuilds a warm overlay dropped by releaseCaches() once the overlay thread has nothing else to do
+	private void prewarmWhenQueueIdle() {
+		if (warmOverlayView == null && appSettingsManager.getWarmOverlayEnabled()) {
+			Looper.myQueue().addIdleHandler(() -> {
+				prewarmOverlay();
+				return false;
+			});
+		}
+	}
+
+	// Everything that is rebuilt on demand; only valid while no overlay is shown
+	private void releaseCaches() {
+		if (overlaySession != null) {
+			return;
+		}
+		if (warmOverlayView != null) {
+			windowManager.removeView(warmOverlayView);
+			warmOverlayView = null;
+			parkedOverlayParams = null;
+		}
+		clockUtils = null;
+		if (brightnessManager != null) {
+			// Queued restores still run before the executor stops
+			brightnessManager.release();
+			brightnessManager = null;
+		}
+	}
+
+	private void updateNotification(String text) {
+		notificationText = text;
+		notification = buildNotification();
+		NotificationManager manager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+		manager.notify(NOTIFICATION_ID, notification);
+	}
+
+	@Override
+	public void onTrimMemory(int level) {
+		super.onTrimMemory(level);
+		overlayHandler.post(() -> {
+			if (overlaySession != null) {
+				return;
+			}
+			// The levels are not a scale: UI_HIDDEN (20) sorts above RUNNING_CRITICAL (15) but only means
+			// MainActivity went to the background, which happens all the time and says nothing about
+			// memory, so the caches and the warm overlay stay
+			if (level == TRIM_MEMORY_RUNNING_CRITICAL) {
+				enterIdle();
+			} else if (level == TRIM_MEMORY_RUNNING_MODERATE || level == TRIM_MEMORY_RUNNING_LOW
+					|| level >= TRIM_MEMORY_BACKGROUND) {
+				releaseCaches();
+			}
+		});
+	}
+
+	// Created on first use; a service that is never toggled never builds them
+	private ClockUtils getClockUtils() {
+		if (clockUtils == null) {
+			clockUtils = new ClockUtils(this, overlayHandler, ClockUtils.SYSTEM_TIME, true);
+		}
+		return clockUtils;
+	}
+
+	private BrightnessManager getBrightnessManager() {
+		if (brightnessManager == null) {
+			brightnessManager = new BrightnessManager(this, createSystemSettings());
+		}
+		return brightnessManager;
+	}
+
+	private void registerScreenStateListeners() {
+		// The display listener catches doze/off transitions the broadcasts can report late
+		displayManager = (DisplayManager) getSystemService(Context.DISPLAY_SERVICE);
+		displayListener = new DisplayManager.DisplayListener() {
+			@Override
+			public void onDisplayAdded(int displayId) {
+			}
+
+			@Override
+			public void onDisplayRemoved(int displayId) {
+			}
+
+			@Override
+			public void onDisplayChanged(int displayId) {
+				if (displayId == Display.DEFAULT_DISPLAY) {
+					Display display = displayManager.getDisplay(Display.DEFAULT_DISPLAY);
+					onScreenStateChanged(display != null && display.getState() == Display.STATE_ON);
+				}
+			}
+		};
+		displayManager.registerDisplayListener(displayListener, overlayHandler);
+
+		screenStateReceiver = new BroadcastReceiver() {
+			@Override
+			public void onReceive(Context context, Intent intent) {
+				onScreenStateChanged(Intent.ACTION_SCREEN_ON.equals(intent.getAction()));
+			}
+		};
+		IntentFilter filter = new IntentFilter();
+		filter.addAction(Intent.ACTION_SCREEN_OFF);
+		filter.addAction(Intent.ACTION_SCREEN_ON);
+		registerReceiver(screenStateReceiver, filter, null, overlayHandler);
+
+		// No broadcast comes for a state that was already there; an overlay shown before this (a queued
+		// cold-start command) is paused like the receivers would have done
+		Display display = displayManager.getDisplay(Display.DEFAULT_DISPLAY);
+		onScreenStateChanged(display == null || display.getState() == Display.STATE_ON);
+	}
+
+	private void unregisterScreenStateListeners() {
+		if (displayListener != null) {
+			displayManager.unregisterDisplayListener(displayListener);
+			displayListener = null;
+		}
+		if (screenStateReceiver != null) {
+			unregisterReceiver(screenStateReceiver);
+			screenStateReceiver = null;
+		}
+	}
+
+	// Suspends every periodic task while the panel is off; both listeners may report the same transition
+	private void onScreenStateChanged(boolean on) {
+		if (on == screenOn) {
+			return;
+		}
+		screenOn = on;
+		if (overlaySession != null) {
+			overlaySession.setPaused(!on);
+			if (on) {
+				toggleBudget.countResume();
+			}
+		}
+		if (perfHud != null) {
+			perfHud.setPaused(!on);
+		}
+	}
+
 	private void vibrate() {
 
 		//... inside your Service or other Context
@@ -166,18 +790,115 @@ public class FloatingButtonService extends Service {
 
 	}
 
-	private void showUntouchableBlackScreen() {
+	// Inflates the overlay and attaches it hidden and untouchable, so showing it is a single updateViewLayout
+	private void prewarmOverlay() {
+		if (warmOverlayView != null || floatingView == null || idle) {
+			return;
+		}
+		warmOverlayView = LayoutInflater.from(this).inflate(R.layout.black_screen_untouchable_layout, null);
+		warmOverlayView.setVisibility(View.GONE);
+
+		parkedOverlayParams = new WindowManager.LayoutParams(WindowManager.LayoutParams.MATCH_PARENT,
+				WindowManager.LayoutParams.MATCH_PARENT, WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY,
+				WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN | WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS
+						| WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE,
+				overlayPixelFormat());
+		parkedOverlayParams.gravity = Gravity.TOP | Gravity.START;
+
+		windowManager.addView(warmOverlayView, parkedOverlayParams);
+	}
+
+	// An opaque layer covering the screen lets SurfaceFlinger skip everything below it instead of
+	// blending over it on every composition. Both overlay layouts are solid black, so nothing shows through.
+	private int overlayPixelFormat() {
+		return opaqueOverlay ? PixelFormat.OPAQUE : PixelFormat.TRANSLUCENT;
+	}
+
+	// Warm view when available, otherwise a freshly inflated one. The warm view doubles as the
+	// touchable overlay by hiding its clock face.
+	private OverlaySession createOverlaySession(int layoutRes, boolean showClock) {
+		View overlayView;
+		OverlaySession session;
+		if (warmOverlayView != null) {
+			overlayView = warmOverlayView;
+			((ClockFaceView) overlayView).setClockVisible(showClock);
+			session = new OverlaySession(windowManager, overlayView, parkedOverlayParams);
+		} else {
+			overlayView = LayoutInflater.from(this).inflate(layoutRes, null);
+			toggleBudget.countInflation();
+			session = new OverlaySession(windowManager, overlayView);
+		}
+		session.setPaused(!screenOn);
+		return session;
+	}
+
+	// Opens the tap-to-black slice before any of the show's work: inflate, addView, brightness and the
+	// clock all fall inside it. reportFirstBlackFrame() closes it.
+	private void beginTapToBlack() {
+		OverlayTrace.beginAsync(OverlayTrace.TAP_TO_BLACK, ++tapToBlackCookie);
+	}
+
+	// Logs tap-to-first-black-frame for the warm and cold paths so they can be compared
+	private void reportFirstBlackFrame(View overlayView, long tapUptime, boolean warm) {
+		final int cookie = tapToBlackCookie;
+		Runnable report = () -> {
+			OverlayTrace.endAsync(OverlayTrace.TAP_TO_BLACK, cookie);
+			long latency = SystemClock.uptimeMillis() - tapUptime;
+			eventLog.record(warm ? OverlayEventLog.EVENT_LATENCY_WARM : OverlayEventLog.EVENT_LATENCY_COLD, latency);
+			PerfStats.getInstance().lastToggleLatencyMs = latency;
+			if (warm) {
+				warmLatencyTotalMs += latency;
+				warmLatencyCount++;
+			} else {
+				coldLatencyTotalMs += latency;
+				coldLatencyCount++;
+			}
+			Log.d(TAG, "Tap-to-black (" + (warm ? "warm" : "cold") + "): " + latency + " ms, avg warm "
+					+ average(warmLatencyTotalMs, warmLatencyCount) + " ms / cold "
+					+ average(coldLatencyTotalMs, coldLatencyCount) + " ms");
+		};
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+			overlayView.getViewTreeObserver().registerFrameCommitCallback(report);
+		} else {
+			overlayView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+				@Override
+				public boolean onPreDraw() {
+					overlayView.getViewTreeObserver().removeOnPreDrawListener(this);
+					report.run();
+					return true;
+				}
+			});
+		}
+	}
+
+	private static long average(long total, int count) {
+		return count == 0 ? 0 : total / count;
+	}
+
+	private void showUntouchableBlackScreen(long tapUptime) {
+		showUntouchableBlackScreen(tapUptime, getBrightnessManager().canWriteSystemSettings(),
+				appSettingsManager.getClockEnabled());
+	}
+
+	// systemBrightness picks applyCombinedBrightness over window-only dimming; the battery
+	// measurement also runs without the clock
+	private void showUntouchableBlackScreen(long tapUptime, boolean systemBrightness, boolean showClock) {
+		OverlayTrace.begin(OverlayTrace.SHOW_UNTOUCHABLE);
+		eventLog.record(OverlayEventLog.EVENT_SHOW_UNTOUCHABLE, 0);
+		toggleCycle = toggleBudget.begin(WakeupBudget.perHour(false, showClock));
 		floatingView.setVisibility(View.GONE);
-		blackScreenOverlay = LayoutInflater.from(this).inflate(R.layout.black_screen_untouchable_layout, null);
-		timeTextView = blackScreenOverlay.findViewById(R.id.overlay_time);
-		dateDayTextView = blackScreenOverlay.findViewById(R.id.overlay_date_and_day);
+		overlaySession = createOverlaySession(R.layout.black_screen_untouchable_layout, showClock);
+		View blackScreenOverlay = overlaySession.getView();
+		clockFaceView = (ClockFaceView) blackScreenOverlay;
+		clockFaceView.setClockVisible(showClock);
+		clockFaceView.setClockStyle(appSettingsManager.getClockStyle());
 
 		WindowManager.LayoutParams params = new WindowManager.LayoutParams(WindowManager.LayoutParams.MATCH_PARENT,
 				WindowManager.LayoutParams.MATCH_PARENT, WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY,
 				WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN | WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS
 						| WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE
 
-				/* WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS*/, PixelFormat.TRANSLUCENT);
+				/* WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS*/, overlayPixelFormat());
 
 		// Set the display cutout mode
 		params.layoutInDisplayCutoutMode = WindowManager.LayoutParams.LAYOUT_IN_DISPLAY_CUTOUT_MODE_ALWAYS;
@@ -186,46 +907,81 @@ public class FloatingButtonService extends Service {
 		params.x = 0;
 		params.y = 0;
 
-		brightnessManager.setOverlayParams(params);
-		if (brightnessManager.canWriteSystemSettings()) {
-			brightnessManager.applyCombinedBrightness();
+		Display display = ((DisplayManager) getSystemService(Context.DISPLAY_SERVICE)).getDisplay(Display.DEFAULT_DISPLAY);
+		if (display != null) {
+			float refreshRate = RefreshRateHint.apply(display, params, blackScreenOverlay);
+			eventLog.record(OverlayEventLog.EVENT_REFRESH_RATE_HINT, Math.round(refreshRate));
+		}
+
+		overlayParams = params;
+		getBrightnessManager().setOverlayParams(params);
+		if (systemBrightness) {
+			getBrightnessManager().applyCombinedBrightness();
 		} else {
-			brightnessManager.applyInAppWindowBrightness();
+			getBrightnessManager().applyInAppWindowBrightness();
 		}
 
 		// Also set the view itself to be fullscreen
 		blackScreenOverlay.setSystemUiVisibility(View.SYSTEM_UI_FLAG_LAYOUT_STABLE
 				| View.SYSTEM_UI_FLAG_LAYOUT_HIDE_NAVIGATION | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN);
 
+		unlockGesture.setTapCount(appSettingsManager.getTapsToWake());
+		unlockGesture.reset();
 		blackScreenOverlay.setOnTouchListener(new View.OnTouchListener() {
-			private static final int TAP_COUNT_TO_UNLOCK = 3;
-			private static final long TAP_TIMEOUT_MS = 300;
-			private long lastTapTime = 0;
-			private int tapCount = 0;
-
 			@Override
 			public boolean onTouch(View v, MotionEvent event) {
-				if (event.getAction() == MotionEvent.ACTION_DOWN) {
-					long currentTime = System.currentTimeMillis();
-					if (currentTime - lastTapTime < TAP_TIMEOUT_MS) {
-						tapCount++;
-					} else {
-						tapCount = 1;
-					}
-					lastTapTime = currentTime;
-
-					if (tapCount == TAP_COUNT_TO_UNLOCK) {
-						vibrate();
-						hideBlackScreen();
-						tapCount = 0;
-						return true;
-					}
+				int gesture = GestureRecognizer.GESTURE_NONE;
+				switch (event.getActionMasked()) {
+				case MotionEvent.ACTION_DOWN:
+					gesture = unlockGesture.onDown(event.getEventTime(), event.getRawX(), event.getRawY());
+					break;
+				case MotionEvent.ACTION_MOVE:
+					gesture = unlockGesture.onMove(event.getEventTime(), event.getRawX(), event.getRawY());
+					break;
+				case MotionEvent.ACTION_UP:
+					gesture = unlockGesture.onUp(event.getEventTime(), event.getRawX(), event.getRawY());
+					break;
+				case MotionEvent.ACTION_CANCEL:
+					unlockGesture.onCancel();
+					break;
+				}
+				if (gesture == GestureRecognizer.GESTURE_TAP_SEQUENCE) {
+					eventLog.record(OverlayEventLog.EVENT_UNLOCK_GESTURE, unlockGesture.getTapCount());
+					vibrate();
+					hideBlackScreen();
 				}
 				return true;
 			}
 		});
 
-		windowManager.addView(blackScreenOverlay, params);
+		if (showClock) {
+			overlaySession.addComponent(new OverlaySession.Component() {
+				@Override
+				public void start() {
+					getClockUtils().startUpdatingTime(clockFaceView);
+				}
+
+				@Override
+				public void pause() {
+					getClockUtils().pauseUpdatingTime();
+				}
+
+				@Override
+				public void resume() {
+					getClockUtils().resumeUpdatingTime();
+				}
+
+				@Override
+				public void stop() {
+					getClockUtils().stopUpdatingTime();
+				}
+			});
+		}
+
+		overlaySession.attach(params);
+		raisePerfHud();
+		reportFirstBlackFrame(blackScreenOverlay, tapUptime, overlaySession.isWarm());
+		publishOverlayState(true);
 		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
 			blackScreenOverlay.getWindowInsetsController()
 					.setSystemBarsBehavior(WindowInsetsController.BEHAVIOR_SHOW_TRANSIENT_BARS_BY_SWIPE);
@@ -233,52 +989,183 @@ public class FloatingButtonService extends Service {
 			// Hide system bars
 			blackScreenOverlay.getWindowInsetsController().hide(WindowInsets.Type.systemBars());
 		}
-
-		clockUtils.startUpdatingTime(timeTextView, dateDayTextView);
+		OverlayTrace.counter(OverlayTrace.COUNTER_OVERLAY_STATE, OverlayTrace.OVERLAY_UNTOUCHABLE);
+		OverlayTrace.end();
 	}
 
-	private void showTouchableBlackScreen() {
+	private void showTouchableBlackScreen(long tapUptime) {
+		OverlayTrace.begin(OverlayTrace.SHOW_TOUCHABLE);
+		eventLog.record(OverlayEventLog.EVENT_SHOW_TOUCHABLE, 0);
+		toggleCycle = toggleBudget.begin(WakeupBudget.perHour(true, false));
 		floatingView.setVisibility(View.GONE);
-		blackScreenOverlay = LayoutInflater.from(this).inflate(R.layout.black_screen_touchable_layout, null);
+		overlaySession = createOverlaySession(R.layout.black_screen_touchable_layout, false);
 
+		int flags = WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN | WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON
+				| WindowManager.LayoutParams.FLAG_LAYOUT_INSET_DECOR | WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS;
+		if (!opaqueOverlay) {
+			flags |= WindowManager.LayoutParams.FLAG_TRANSLUCENT_NAVIGATION
+					| WindowManager.LayoutParams.FLAG_TRANSLUCENT_STATUS;
+		}
 		WindowManager.LayoutParams params = new WindowManager.LayoutParams(WindowManager.LayoutParams.MATCH_PARENT,
-				WindowManager.LayoutParams.MATCH_PARENT, WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY,
-				WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN | WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON
-						| WindowManager.LayoutParams.FLAG_TRANSLUCENT_NAVIGATION
-						| WindowManager.LayoutParams.FLAG_TRANSLUCENT_STATUS
-						| WindowManager.LayoutParams.FLAG_LAYOUT_INSET_DECOR
-						| WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS,
-				PixelFormat.TRANSLUCENT);
+				WindowManager.LayoutParams.MATCH_PARENT, WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY, flags,
+				overlayPixelFormat());
 
-		windowManager.addView(blackScreenOverlay, params);
+		overlaySession.attach(params);
+		raisePerfHud();
+		reportFirstBlackFrame(overlaySession.getView(), tapUptime, overlaySession.isWarm());
+		publishOverlayState(true);
+		OverlayTrace.counter(OverlayTrace.COUNTER_OVERLAY_STATE, OverlayTrace.OVERLAY_TOUCHABLE);
+		OverlayTrace.end();
+	}
+
+	// The HUD was added before the overlay (or the warm overlay after it) and would sit underneath
+	private void raisePerfHud() {
+		if (perfHud != null) {
+			perfHud.raise();
+		}
 	}
 
 	private void hideBlackScreen() {
-		if (blackScreenOverlay != null) {
-			brightnessManager.restoreBrightness();
-			windowManager.removeView(blackScreenOverlay);
-			blackScreenOverlay = null;
+		if (overlaySession != null) {
+			OverlayTrace.begin(OverlayTrace.HIDE);
+			eventLog.record(OverlayEventLog.EVENT_HIDE, 0);
+			getBrightnessManager().restoreBrightness();
+			RefreshRateHint.clear(overlaySession.getView());
+			// Tears down the clock ticker and listeners together with the window
+			boolean warm = overlaySession.isWarm();
+			overlaySession.close();
+			int cycle = toggleCycle;
+			getBrightnessManager().runAfterPendingWrites(() -> toggleBudget.end(cycle, warm));
+			overlaySession = null;
+			overlayParams = null;
+			clockFaceView = null;
 			floatingView.setVisibility(View.VISIBLE);
+			// A trim while the overlay was away, or before this cold show, dropped the warm overlay
+			prewarmWhenQueueIdle();
+			scheduleIdle();
+			publishOverlayState(false);
+			OverlayTrace.counter(OverlayTrace.COUNTER_OVERLAY_STATE, OverlayTrace.OVERLAY_HIDDEN);
+			OverlayTrace.end();
 		}
 	}
 
 	@Override
 	public int onStartCommand(Intent intent, int flags, int startId) {
+		if (intent != null && ACTION_MEASURE_BATTERY.equals(intent.getAction())) {
+			overlayHandler.post(this::startBatteryMeasurement);
+		} else if (intent != null && isOverlayCommand(intent.getAction())) {
+			long receivedUptime = SystemClock.uptimeMillis();
+			boolean accepted = commandDebouncer.accept(commandKey(intent), receivedUptime);
+			overlayHandler.post(() -> handleCommand(intent, receivedUptime, accepted));
+		} else {
+			// Started again from the app or the notification: bring the button back if it went idle
+			overlayHandler.post(this::exitIdle);
+		}
 		return START_STICKY;
 	}
 
-	@Override
-	public void onDestroy() {
-		super.onDestroy();
-		brightnessManager.restoreBrightness();
-		if (floatingView != null) {
-			windowManager.removeView(floatingView);
+	private void startBatteryMeasurement() {
+		if (batteryMeasurement != null && batteryMeasurement.isRunning()) {
+			return;
 		}
-		if (blackScreenOverlay != null) {
-			windowManager.removeView(blackScreenOverlay);
+		exitIdle();
+		batteryMeasurement = new BatteryMeasurement(this, overlayHandler,
+				new BatteryManagerSource(this), ClockUtils.SYSTEM_TIME, new BatteryMeasurement.Target() {
+					@Override
+					public String applyConfiguration(int config) {
+						return applyMeasurementConfiguration(config);
+					}
+
+					@Override
+					public void onMeasurementFinished(File csv) {
+						Toast.makeText(FloatingButtonService.this,
+								csv != null ? "Battery measurement saved to " + csv : "Battery measurement failed",
+								Toast.LENGTH_LONG).show();
+					}
+				});
+		Toast.makeText(this, "Battery measurement started, keep the device unplugged", Toast.LENGTH_LONG).show();
+		batteryMeasurement.start();
+	}
+
+	private String applyMeasurementConfiguration(int config) {
+		hideBlackScreen();
+		long now = SystemClock.uptimeMillis();
+		boolean canWrite = getBrightnessManager().canWriteSystemSettings();
+		if (config != BatteryRun.CONFIG_NO_OVERLAY) {
+			beginTapToBlack();
 		}
-		if (clockUtils != null) {
-			clockUtils.stopUpdatingTime();
+		switch (config) {
+		case BatteryRun.CONFIG_TOUCHABLE:
+			showTouchableBlackScreen(now);
+			return "touchable";
+		case BatteryRun.CONFIG_UNTOUCHABLE_WINDOW_CLOCK:
+			showUntouchableBlackScreen(now, false, true);
+			return "untouchable_window_clock";
+		case BatteryRun.CONFIG_UNTOUCHABLE_WINDOW_NO_CLOCK:
+			showUntouchableBlackScreen(now, false, false);
+			return "untouchable_window_noclock";
+		case BatteryRun.CONFIG_UNTOUCHABLE_COMBINED_CLOCK:
+			showUntouchableBlackScreen(now, canWrite, true);
+			// Without WRITE_SETTINGS this falls back to window-only; label it so the CSV says so
+			return canWrite ? "untouchable_combined_clock" : "untouchable_window_clock_fallback";
+		case BatteryRun.CONFIG_UNTOUCHABLE_COMBINED_NO_CLOCK:
+			showUntouchableBlackScreen(now, canWrite, false);
+			return canWrite ? "untouchable_combined_noclock" : "untouchable_window_noclock_fallback";
+		default:
+			return "none";
 		}
 	}
+
+	@Override
+	protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+		writer.println("overlayShown=" + (overlaySession != null) + " warm=" + (warmOverlayView != null) + " screenOn="
+				+ screenOn + " idle=" + idle + " opaque=" + opaqueOverlay);
+		if (brightnessManager != null) {
+			writer.println("systemBrightnessControlled=" + brightnessManager.isSystemBrightnessControlled());
+		}
+		toggleBudget.dump(writer);
+		eventLog.dump(writer);
+	}
+
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		// Windows have to be removed from the thread that added them; quitSafely() still runs this
+		overlayHandler.post(() -> {
+			unregisterScreenStateListeners();
+			if (batteryMeasurement != null) {
+				batteryMeasurement.cancel();
+			}
+			if (floatingButtonMover != null) {
+				floatingButtonMover.release();
+			}
+			if (perfHud != null) {
+				perfHud.hide();
+			}
+			if (brightnessManager != null) {
+				brightnessManager.restoreBrightness();
+				brightnessManager.release();
+			}
+			if (floatingView != null) {
+				if (!idle) {
+					windowManager.removeView(floatingView);
+				}
+				// Also stops a still-pending prewarm from attaching a window after destroy
+				floatingView = null;
+			}
+			if (overlaySession != null) {
+				overlaySession.close();
+				overlaySession = null;
+			}
+			// The queue no longer takes posts here, so the tile is told directly
+			appSettingsManager.setOverlayShown(false);
+			requestTileUpdate();
+			overlayMessenger.release();
+			if (warmOverlayView != null) {
+				windowManager.removeView(warmOverlayView);
+				warmOverlayView = null;
+			}
+		});
+		overlayThread.quitSafely();
+	}
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+/**
+* Base for clock faces made of centered text rows stacked vertically. Every row keeps its own
+* characters and per-cell positions; digits share one pre-measured cell width so a changing digit
+* never moves its neighbours and only that cell is reported dirty.
+*/
+public abstract class GlyphClockFace implements ClockFace {
+
+	protected static final int MAX_ROW_CHARS = 32;
+
+	protected static final class GlyphRow {
+		private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		private final float textSizeSp;
+		private final char[] chars = new char[MAX_ROW_CHARS];
+		private final float[] cellLeft = new float[MAX_ROW_CHARS];
+		private final float[] cellWidth = new float[MAX_ROW_CHARS];
+		private final float[] glyphWidth = new float[MAX_ROW_CHARS];
+		private int length;
+		private float digitWidth;
+		private float ascent;
+		private float descent;
+		private float baseline;
+		private int viewWidth;
+
+		protected GlyphRow(float textSizeSp, Typeface typeface) {
+			this.textSizeSp = textSizeSp;
+			paint.setColor(0xffffffff);
+			paint.setTypeface(typeface);
+		}
+
+		void measureGlyphs(float scaledDensity, int viewWidth) {
+			this.viewWidth = viewWidth;
+			paint.setTextSize(textSizeSp * scaledDensity);
+			Paint.FontMetrics metrics = paint.getFontMetrics();
+			ascent = -metrics.ascent;
+			descent = metrics.descent;
+			digitWidth = 0;
+			for (char c = '0'; c <= '9'; c++) {
+				digitWidth = Math.max(digitWidth, paint.measureText(String.valueOf(c)));
+			}
+			layoutCells();
+		}
+
+		float getHeight() {
+			return ascent + descent;
+		}
+
+		void setTop(float top) {
+			baseline = top + ascent;
+		}
+
+		// Copies text[start, end) into the row and marks the changed cells, or the whole row if its geometry changed
+		void set(CharSequence text, int start, int end, Rect dirty) {
+			int newLength = Math.min(end - start, MAX_ROW_CHARS);
+			boolean relayout = newLength != length;
+			// Same length: only digit-for-digit swaps keep the cell geometry
+			for (int i = 0; i < newLength && !relayout; i++) {
+				char c = text.charAt(start + i);
+				relayout = c != chars[i] && !(Character.isDigit(c) && Character.isDigit(chars[i]));
+			}
+
+			if (relayout) {
+				addRow(dirty);
+				for (int i = 0; i < newLength; i++) {
+					chars[i] = text.charAt(start + i);
+				}
+				length = newLength;
+				layoutCells();
+				addRow(dirty);
+				return;
+			}
+			for (int i = 0; i < newLength; i++) {
+				char c = text.charAt(start + i);
+				if (c != chars[i]) {
+					chars[i] = c;
+					glyphWidth[i] = paint.measureText(chars, i, 1);
+					addCell(i, dirty);
+				}
+			}
+		}
+
+		void draw(Canvas canvas) {
+			for (int i = 0; i < length; i++) {
+				canvas.drawText(chars, i, 1, cellLeft[i] + (cellWidth[i] - glyphWidth[i]) / 2, baseline, paint);
+			}
+		}
+
+		private void layoutCells() {
+			float total = 0;
+			for (int i = 0; i < length; i++) {
+				glyphWidth[i] = paint.measureText(chars, i, 1);
+				cellWidth[i] = Character.isDigit(chars[i]) ? Math.max(digitWidth, glyphWidth[i]) : glyphWidth[i];
+				total += cellWidth[i];
+			}
+			float x = (viewWidth - total) / 2;
+			for (int i = 0; i < length; i++) {
+				cellLeft[i] = x;
+				x += cellWidth[i];
+			}
+		}
+
+		private void addCell(int i, Rect dirty) {
+			dirty.union((int) cellLeft[i], (int) (baseline - ascent), (int) Math.ceil(cellLeft[i] + cellWidth[i]),
+					(int) Math.ceil(baseline + descent));
+		}
+
+		private void addRow(Rect dirty) {
+			if (length == 0) {
+				return;
+			}
+			dirty.union((int) cellLeft[0], (int) (baseline - ascent),
+					(int) Math.ceil(cellLeft[length - 1] + cellWidth[length - 1]), (int) Math.ceil(baseline + descent));
+		}
+	}
+
+	private final GlyphRow[] rows;
+	private final float[] gapsDp;
+
+	// gapsDp[i] is the space above rows[i + 1]
+	protected GlyphClockFace(GlyphRow[] rows, float[] gapsDp) {
+		this.rows = rows;
+		this.gapsDp = gapsDp;
+	}
+
+	protected GlyphRow row(int index) {
+		return rows[index];
+	}
+
+	@Override
+	public void onLayout(int width, int height, float scaledDensity) {
+		float total = 0;
+		for (int i = 0; i < rows.length; i++) {
+			rows[i].measureGlyphs(scaledDensity, width);
+			total += rows[i].getHeight();
+			if (i > 0) {
+				total += gapsDp[i - 1] * scaledDensity;
+			}
+		}
+		// Rows form a packed group centered in the view, like the old packed chain
+		float top = (height - total) / 2;
+		for (int i = 0; i < rows.length; i++) {
+			if (i > 0) {
+				top += gapsDp[i - 1] * scaledDensity;
+			}
+			rows[i].setTop(top);
+			top += rows[i].getHeight();
+		}
+	}
+
+	@Override
+	public void draw(Canvas canvas) {
+		for (GlyphRow row : rows) {
+			row.draw(canvas);
+		}
+	}
+}
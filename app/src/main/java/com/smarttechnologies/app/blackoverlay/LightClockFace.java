@@ -0,0 +1,25 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+/**
+* Style 2: a large thin time with a small date underneath.
+*/
+public class LightClockFace extends GlyphClockFace {
+
+	public LightClockFace() {
+		super(new GlyphRow[] { new GlyphRow(72, Typeface.create("sans-serif-thin", Typeface.NORMAL)),
+				new GlyphRow(14, Typeface.create("sans-serif-light", Typeface.NORMAL)) }, new float[] { 4 });
+	}
+
+	@Override
+	public void update(CharSequence time, CharSequence date, int changed, Rect dirty) {
+		if ((changed & ClockFormatter.TIME_CHANGED) != 0) {
+			row(0).set(time, 0, time.length(), dirty);
+		}
+		if ((changed & ClockFormatter.DATE_CHANGED) != 0) {
+			row(1).set(date, 0, date.length(), dirty);
+		}
+	}
+}
@@ -45,12 +45,9 @@ public class LookFeelFragment extends Fragment {
 		CheckBox checkBoxBatteryPercentage = view.findViewById(R.id.checkBoxBatteryPercentage);
 
 		// Set up click listeners for the CardView previews
-		cardViewClock1.setOnClickListener(
-				v -> Toast.makeText(getContext(), "Clock Style 1 selected", Toast.LENGTH_SHORT).show());
-		cardViewClock2.setOnClickListener(
-				v -> Toast.makeText(getContext(), "Clock Style 2 selected", Toast.LENGTH_SHORT).show());
-		cardViewClock3.setOnClickListener(
-				v -> Toast.makeText(getContext(), "Clock Style 3 selected", Toast.LENGTH_SHORT).show());
+		cardViewClock1.setOnClickListener(v -> selectClockStyle(ClockFace.STYLE_CLASSIC, "Clock Style 1 selected"));
+		cardViewClock2.setOnClickListener(v -> selectClockStyle(ClockFace.STYLE_LIGHT, "Clock Style 2 selected"));
+		cardViewClock3.setOnClickListener(v -> selectClockStyle(ClockFace.STYLE_STACKED, "Clock Style 3 selected"));
 		cardViewLock1.setOnClickListener(
 				v -> Toast.makeText(getContext(), "Lock Style 1 selected", Toast.LENGTH_SHORT).show());
 		cardViewLock2.setOnClickListener(
@@ -104,4 +101,10 @@ public class LookFeelFragment extends Fragment {
 			// TODO: Add logic to save the state
 		});
 	}
+
+	// The overlay picks the style up the next time it is shown
+	private void selectClockStyle(int style, String message) {
+		AppPreferencesManager.getInstance(requireContext()).setClockStyle(style);
+		Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show();
+	}
 }
\ No newline at end of file
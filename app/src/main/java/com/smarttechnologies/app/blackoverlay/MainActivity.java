@@ -16,19 +16,27 @@ import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 
 public class MainActivity extends AppCompatActivity implements PermissionManager.PermissionCallback {
+	// Optional boolean extra that sets the overlay touch mode before the service starts. Only the
+	// benchmark build reads it from the launch intent; anyone can send one to this exported activity.
+	public static final String EXTRA_PREVENT_TOUCH = "com.smarttechnologies.app.blackoverlay.extra.PREVENT_TOUCH";
+
 	private ClockUtils clockUtils;
 	private TextView timeTextView;
 	private TextView dateDayTextView;
 	private PermissionManager permissionManager;
 	private AppPreferencesManager prefsManager;
+	private boolean framesTracked = false;
 
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 		setContentView(R.layout.activity_main);
 
-		clockUtils = new ClockUtils();
+		clockUtils = new ClockUtils(this);
 		prefsManager = AppPreferencesManager.getInstance(this);
+		if (BuildConfig.BENCHMARK_HOOKS && getIntent().hasExtra(EXTRA_PREVENT_TOUCH)) {
+			prefsManager.setPreventTouch(getIntent().getBooleanExtra(EXTRA_PREVENT_TOUCH, false));
+		}
 		// Initialize the PermissionManager with this activity and callback
 		permissionManager = new PermissionManager(this, this);
 
@@ -38,6 +46,27 @@ public class MainActivity extends AppCompatActivity implements PermissionManager
 		permissionManager.checkAndRequestPermissions();
 	}
 
+	@Override
+	protected void onStart() {
+		super.onStart();
+		// Preview clock follows the same minute-aligned ticker as the overlay
+		clockUtils.startUpdatingTime(timeTextView, dateDayTextView);
+		if (prefsManager.getPerfHudEnabled()) {
+			PerfStats.getInstance().trackFrames(getWindow());
+			framesTracked = true;
+		}
+	}
+
+	@Override
+	protected void onStop() {
+		super.onStop();
+		clockUtils.stopUpdatingTime();
+		if (framesTracked) {
+			PerfStats.getInstance().untrackFrames(getWindow());
+			framesTracked = false;
+		}
+	}
+
 	private void setupUI() {
 		// Find the ViewPager2 and TabLayout from the layout file
 		ViewPager2 viewPager = findViewById(R.id.view_pager);
@@ -98,8 +127,7 @@ public class MainActivity extends AppCompatActivity implements PermissionManager
 	//--- End PermissionCallback ---//
 
 	private void startFloatingService() {
-		Intent intent = new Intent(this, FloatingButtonService.class);
-		startService(intent);
+		FloatingButtonService.start(this, null);
 		Toast.makeText(this, "Service starting...", Toast.LENGTH_SHORT).show();
 		// finish(); // Optional: close the activity
 	}
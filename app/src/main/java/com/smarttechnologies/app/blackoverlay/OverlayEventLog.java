@@ -0,0 +1,102 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.os.SystemClock;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* Process-wide, fixed-size ring buffer of overlay events, printed by FloatingButtonService.dump()
+* (adb shell dumpsys activity service FloatingButtonService). Records are three primitives in
+* preallocated arrays and writers claim a slot with one atomic increment, so recording takes no
+* lock and allocates nothing and can stay on in production. A dump racing a writer may show one
+* half-written record, which is acceptable for diagnostics.
+*/
+public class OverlayEventLog {
+
+	public static final int EVENT_SHOW_UNTOUCHABLE = 1;
+	public static final int EVENT_SHOW_TOUCHABLE = 2;
+	public static final int EVENT_HIDE = 3;
+	public static final int EVENT_BRIGHTNESS_APPLY = 4; // value: system brightness written, -1 if window only
+	public static final int EVENT_BRIGHTNESS_RESTORE = 5; // value: system brightness restored, -1 if window only
+	public static final int EVENT_UNLOCK_GESTURE = 6; // value: taps in the sequence
+	public static final int EVENT_PERMISSION_OVERLAY = 7; // value: 1 granted, 0 denied
+	public static final int EVENT_PERMISSION_WRITE_SETTINGS = 8; // value: 1 granted, 0 denied
+	public static final int EVENT_LATENCY_WARM = 9; // value: tap-to-black ms, warm overlay
+	public static final int EVENT_LATENCY_COLD = 10; // value: tap-to-black ms, inflated overlay
+	public static final int EVENT_BUDGET_EXCEEDED = 11; // value: ToggleBudget.EXCEEDED_* mask
+	public static final int EVENT_SERVICE_START = 12; // value: onCreate to floating button visible, ms
+	public static final int EVENT_IDLE = 13; // value: 1 entered idle, 0 woke up
+	public static final int EVENT_TILE_COMMAND = 14; // value: tile tap to toggle handled by the service, ms
+	public static final int EVENT_REFRESH_RATE_HINT = 15; // value: refresh rate requested for the overlay, Hz
+
+	private static final String[] EVENT_NAMES = { "?", "SHOW_UNTOUCHABLE", "SHOW_TOUCHABLE", "HIDE",
+			"BRIGHTNESS_APPLY", "BRIGHTNESS_RESTORE", "UNLOCK_GESTURE", "PERMISSION_OVERLAY",
+			"PERMISSION_WRITE_SETTINGS", "LATENCY_WARM", "LATENCY_COLD", "BUDGET_EXCEEDED", "SERVICE_START", "IDLE",
+			"TILE_COMMAND", "REFRESH_RATE_HINT" };
+
+	private static final int CAPACITY = 512; // power of two
+	private static final int MASK = CAPACITY - 1;
+
+	private static OverlayEventLog instance;
+
+	private final long[] times = new long[CAPACITY];
+	private final int[] types = new int[CAPACITY];
+	private final long[] values = new long[CAPACITY];
+	private final AtomicLong next = new AtomicLong();
+
+	public static synchronized OverlayEventLog getInstance() {
+		if (instance == null) {
+			instance = new OverlayEventLog();
+		}
+		return instance;
+	}
+
+	public void record(int type, long value) {
+		int slot = (int) (next.getAndIncrement() & MASK);
+		times[slot] = SystemClock.uptimeMillis();
+		values[slot] = value;
+		types[slot] = type;
+	}
+
+	public void dump(PrintWriter writer) {
+		long total = next.get();
+		int count = (int) Math.min(total, CAPACITY);
+		long now = SystemClock.uptimeMillis();
+
+		writer.println("Overlay events (oldest first, " + count + " of " + total + " recorded):");
+		for (long i = total - count; i < total; i++) {
+			int slot = (int) (i & MASK);
+			int type = types[slot];
+			writer.println("  -" + (now - times[slot]) + "ms " + (type > 0 && type < EVENT_NAMES.length ? EVENT_NAMES[type] : "?")
+					+ " " + values[slot]);
+		}
+		dumpLatency(writer, "warm", EVENT_LATENCY_WARM, total, count);
+		dumpLatency(writer, "cold", EVENT_LATENCY_COLD, total, count);
+	}
+
+	// Sorting copy is made here, on the dump path only
+	private void dumpLatency(PrintWriter writer, String label, int type, long total, int count) {
+		long[] samples = new long[count];
+		int n = 0;
+		for (long i = total - count; i < total; i++) {
+			int slot = (int) (i & MASK);
+			if (types[slot] == type) {
+				samples[n++] = values[slot];
+			}
+		}
+		if (n == 0) {
+			writer.println("Tap-to-black latency (" + label + "): no samples");
+			return;
+		}
+		Arrays.sort(samples, 0, n);
+		writer.println("Tap-to-black latency (" + label + "): n=" + n + " p50=" + percentile(samples, n, 50) + "ms p90="
+				+ percentile(samples, n, 90) + "ms p99=" + percentile(samples, n, 99) + "ms max=" + samples[n - 1]
+				+ "ms");
+	}
+
+	private static long percentile(long[] sorted, int n, int percent) {
+		int index = (int) Math.ceil(percent / 100.0 * n) - 1;
+		return sorted[Math.max(0, Math.min(n - 1, index))];
+	}
+}
@@ -0,0 +1,147 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+* Bound API for automation apps holding PERMISSION_CONTROL_OVERLAY (signature level). Clients bind
+* FloatingButtonService, or OverlayProcessService when the separate process option is on, and talk
+* to it with Messengers:
+*
+* MSG_APPLY carries a batch Bundle of KEY_* entries. Missing keys leave that setting alone. The
+* batch is applied in one step on the overlay thread, so a shown overlay is rebuilt at most once and
+* only its final state is visible. With replyTo set, MSG_APPLIED echoes the client's arg1 back once
+* the batch is applied.
+*
+* MSG_REGISTER adds replyTo to the state stream: it gets the current state right away and MSG_STATE
+* again whenever it changes, never twice for the same state. MSG_UNREGISTER removes it.
+*
+* Messages from one client arrive in the order they were sent and are handled one at a time, so
+* replies and state updates come back in that order too. The overlay only lives as long as the
+* service is started or bound.
+*/
+public class OverlayMessenger extends Handler {
+
+	public interface Target {
+		void applyBatch(Bundle batch);
+
+		// Same KEY_* entries as a batch, all of them present
+		Bundle getState();
+	}
+
+	private static final String TAG = "OverlayMessenger";
+
+	public static final String PERMISSION_CONTROL_OVERLAY = "com.smarttechnologies.app.blackoverlay.permission.CONTROL_OVERLAY";
+
+	public static final int MSG_APPLY = 1;
+	public static final int MSG_REGISTER = 2;
+	public static final int MSG_UNREGISTER = 3;
+	public static final int MSG_APPLIED = 101; // arg1: the MSG_APPLY's arg1
+	public static final int MSG_STATE = 102; // arg1: state version, data: state Bundle
+
+	public static final String KEY_SHOWN = "shown"; // boolean
+	public static final String KEY_DIM_LEVEL = "dimLevel"; // int, 0-100
+	public static final String KEY_CLOCK = "clock"; // boolean
+	public static final String KEY_PREVENT_TOUCH = "preventTouch"; // boolean
+
+	private final Target target;
+	private final Messenger messenger;
+	private final List<Messenger> clients = new ArrayList<>();
+	private Bundle lastState;
+	private int stateVersion;
+
+	public OverlayMessenger(Looper looper, Target target) {
+		super(looper);
+		this.target = target;
+		messenger = new Messenger(this);
+	}
+
+	public Messenger getMessenger() {
+		return messenger;
+	}
+
+	@Override
+	public void handleMessage(Message msg) {
+		switch (msg.what) {
+		case MSG_APPLY:
+			target.applyBatch(msg.getData());
+			if (msg.replyTo != null) {
+				send(msg.replyTo, Message.obtain(null, MSG_APPLIED, msg.arg1, 0));
+			}
+			break;
+		case MSG_REGISTER:
+			if (msg.replyTo != null && !clients.contains(msg.replyTo)) {
+				clients.add(msg.replyTo);
+				send(msg.replyTo, stateMessage(currentState()));
+			}
+			break;
+		case MSG_UNREGISTER:
+			clients.remove(msg.replyTo);
+			break;
+		default:
+			super.handleMessage(msg);
+		}
+	}
+
+	// Call on the overlay thread after anything that may change the state; unchanged states are not resent
+	public void notifyStateChanged() {
+		if (clients.isEmpty()) {
+			lastState = null;
+			return;
+		}
+		Bundle previous = lastState;
+		Bundle state = currentState();
+		if (previous != null && sameState(previous, state)) {
+			return;
+		}
+		for (int i = clients.size() - 1; i >= 0; i--) {
+			if (!send(clients.get(i), stateMessage(state))) {
+				clients.remove(i);
+			}
+		}
+	}
+
+	public void release() {
+		clients.clear();
+		removeCallbacksAndMessages(null);
+	}
+
+	private Bundle currentState() {
+		Bundle state = target.getState();
+		if (lastState == null || !sameState(lastState, state)) {
+			stateVersion++;
+		}
+		lastState = state;
+		return state;
+	}
+
+	private Message stateMessage(Bundle state) {
+		Message message = Message.obtain(null, MSG_STATE, stateVersion, 0);
+		message.setData(state);
+		return message;
+	}
+
+	private static boolean sameState(Bundle a, Bundle b) {
+		return a.getBoolean(KEY_SHOWN) == b.getBoolean(KEY_SHOWN) && a.getInt(KEY_DIM_LEVEL) == b.getInt(KEY_DIM_LEVEL)
+				&& a.getBoolean(KEY_CLOCK) == b.getBoolean(KEY_CLOCK)
+				&& a.getBoolean(KEY_PREVENT_TOUCH) == b.getBoolean(KEY_PREVENT_TOUCH);
+	}
+
+	// False once the client's process is gone
+	private static boolean send(Messenger client, Message message) {
+		try {
+			client.send(message);
+			return true;
+		} catch (RemoteException e) {
+			Log.w(TAG, "Dropping overlay client: " + e.getMessage());
+			return false;
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package com.smarttechnologies.app.blackoverlay;
+
+/**
+* FloatingButtonService hosted in the separate :overlay process (see the manifest). That process
+* never loads MainActivity, AppCompat, Material or the fragments, so only the overlay stays
+* resident while the foreground service runs. Settings written by the activity process are picked
+* up through AppPreferencesManager.reload() before each show. This process never writes the app
+* prefs; what the service changes goes to the service state file.
+*/
+public class OverlayProcessService extends FloatingButtonService {
+
+	@Override
+	protected boolean isSeparateProcess() {
+		return true;
+	}
+}
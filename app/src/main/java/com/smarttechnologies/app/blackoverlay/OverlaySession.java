@@ -0,0 +1,131 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.view.View;
+import android.view.WindowManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+* One shown black-screen overlay and everything that works against its views (clock ticker,
+* listeners, sensors). Components start when the window is attached and are all torn down in
+* {@link #close()} together with the window, so none of them can outlive the view.
+*
+* A session built with parked params wraps a warm view that is already attached: attaching only
+* makes it visible through updateViewLayout and closing parks it again instead of removing it.
+*/
+public class OverlaySession {
+
+	public interface Component {
+		void start();
+
+		void pause();
+
+		void resume();
+
+		void stop();
+	}
+
+	private final WindowManager windowManager;
+	private final View overlayView;
+	private final WindowManager.LayoutParams parkedParams;
+	private final List<Component> components = new ArrayList<>();
+	private boolean attached = false;
+	private boolean paused = false;
+
+	public OverlaySession(WindowManager windowManager, View overlayView) {
+		this(windowManager, overlayView, null);
+	}
+
+	public OverlaySession(WindowManager windowManager, View overlayView, WindowManager.LayoutParams parkedParams) {
+		this.windowManager = windowManager;
+		this.overlayView = overlayView;
+		this.parkedParams = parkedParams;
+	}
+
+	public boolean isWarm() {
+		return parkedParams != null;
+	}
+
+	public View getView() {
+		return overlayView;
+	}
+
+	public boolean isAttached() {
+		return attached;
+	}
+
+	public void addComponent(Component component) {
+		components.add(component);
+		if (attached) {
+			component.start();
+			if (paused) {
+				component.pause();
+			}
+		}
+	}
+
+	public void attach(WindowManager.LayoutParams params) {
+		if (attached) {
+			return;
+		}
+		if (isWarm()) {
+			overlayView.setVisibility(View.VISIBLE);
+			windowManager.updateViewLayout(overlayView, params);
+		} else {
+			windowManager.addView(overlayView, params);
+		}
+		ToggleBudget.getInstance().countWindowOp();
+		attached = true;
+		for (Component component : components) {
+			component.start();
+			if (paused) {
+				component.pause();
+			}
+		}
+	}
+
+	// Re-applies changed params (the dim level) to the shown window. Not a toggle, so it is outside the
+	// ToggleBudget window-op count.
+	public void update(WindowManager.LayoutParams params) {
+		if (attached) {
+			windowManager.updateViewLayout(overlayView, params);
+		}
+	}
+
+	// Used for screen off/on; components keep their state and catch up on resume
+	public void setPaused(boolean paused) {
+		if (this.paused == paused) {
+			return;
+		}
+		this.paused = paused;
+		if (!attached) {
+			return;
+		}
+		for (Component component : components) {
+			if (paused) {
+				component.pause();
+			} else {
+				component.resume();
+			}
+		}
+	}
+
+	public void close() {
+		// Stop in reverse order of registration
+		for (int i = components.size() - 1; i >= 0; i--) {
+			components.get(i).stop();
+		}
+		components.clear();
+		overlayView.setOnTouchListener(null);
+		if (attached) {
+			if (isWarm()) {
+				overlayView.setVisibility(View.GONE);
+				windowManager.updateViewLayout(overlayView, parkedParams);
+			} else {
+				windowManager.removeView(overlayView);
+			}
+			ToggleBudget.getInstance().countWindowOp();
+			attached = false;
+		}
+	}
+}
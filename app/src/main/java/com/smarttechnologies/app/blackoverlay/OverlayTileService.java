@@ -0,0 +1,60 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.SystemClock;
+import android.service.quicksettings.Tile;
+import android.service.quicksettings.TileService;
+
+/**
+* Quick Settings tile that toggles the black screen without bringing up MainActivity. A tap only
+* sends ACTION_TOGGLE to the overlay service, starting it if needed; the service switches the
+* overlay on its own thread and logs tap-to-black from the tile tap like it does for the floating
+* button. Enabled and disabled from Settings.
+*/
+public class OverlayTileService extends TileService {
+
+	@Override
+	public void onStartListening() {
+		super.onStartListening();
+		updateTile(AppPreferencesManager.getInstance(this).isOverlayShown());
+	}
+
+	@Override
+	public void onClick() {
+		super.onClick();
+		long tapUptime = SystemClock.uptimeMillis();
+		boolean shown = AppPreferencesManager.getInstance(this).isOverlayShown();
+		FloatingButtonService.toggle(this, tapUptime);
+		// Flipped right away; the service confirms through requestUpdate() once it has switched
+		updateTile(!shown);
+	}
+
+	private void updateTile(boolean shown) {
+		Tile tile = getQsTile();
+		if (tile == null) {
+			return;
+		}
+		tile.setState(shown ? Tile.STATE_ACTIVE : Tile.STATE_INACTIVE);
+		tile.updateTile();
+	}
+
+	// Has the system rebind the tile so onStartListening() picks up the new overlay state
+	public static void requestUpdate(Context context) {
+		TileService.requestListeningState(context, new ComponentName(context, OverlayTileService.class));
+	}
+
+	public static boolean isEnabled(Context context) {
+		return context.getPackageManager().getComponentEnabledSetting(
+				new ComponentName(context, OverlayTileService.class)) == PackageManager.COMPONENT_ENABLED_STATE_ENABLED;
+	}
+
+	// The tile only shows up in the Quick Settings editor while the component is enabled
+	public static void setEnabled(Context context, boolean enabled) {
+		context.getPackageManager().setComponentEnabledSetting(new ComponentName(context, OverlayTileService.class),
+				enabled ? PackageManager.COMPONENT_ENABLED_STATE_ENABLED
+						: PackageManager.COMPONENT_ENABLED_STATE_DISABLED,
+				PackageManager.DONT_KILL_APP);
+	}
+}
@@ -0,0 +1,69 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+* Thin wrapper over android.os.Trace for the overlay hot paths. ENABLED is a compile-time constant
+* from the build type, so in release builds javac leaves the bodies below empty. Nothing inlines
+* them (minify is off), so callers still pay a static call into an empty method, no Trace call and
+* no SDK check. Section and counter names are constants, so tracing itself allocates nothing.
+*/
+public final class OverlayTrace {
+
+	public static final boolean ENABLED = BuildConfig.OVERLAY_TRACING;
+
+	// Sections
+	public static final String SHOW_UNTOUCHABLE = "Overlay.showUntouchable";
+	public static final String SHOW_TOUCHABLE = "Overlay.showTouchable";
+	public static final String HIDE = "Overlay.hide";
+	public static final String APPLY_BRIGHTNESS = "Brightness.applyCombined";
+	public static final String RESTORE_BRIGHTNESS = "Brightness.restore";
+	public static final String CLOCK_TICK = "Clock.tick";
+
+	// Async slices, matched by cookie
+	public static final String TAP_TO_BLACK = "Overlay.tapToBlack";
+	public static final String SERVICE_START_TO_BUTTON = "Service.startToButtonVisible";
+
+	// Counters
+	public static final String COUNTER_OVERLAY_STATE = "overlay_state";
+	public static final String COUNTER_WINDOW_BRIGHTNESS = "window_brightness_permille";
+	public static final String COUNTER_SYSTEM_BRIGHTNESS = "system_brightness";
+
+	public static final int OVERLAY_HIDDEN = 0;
+	public static final int OVERLAY_UNTOUCHABLE = 1;
+	public static final int OVERLAY_TOUCHABLE = 2;
+
+	private OverlayTrace() {
+	}
+
+	public static void begin(String section) {
+		if (ENABLED) {
+			Trace.beginSection(section);
+		}
+	}
+
+	public static void end() {
+		if (ENABLED) {
+			Trace.endSection();
+		}
+	}
+
+	public static void beginAsync(String slice, int cookie) {
+		if (ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+			Trace.beginAsyncSection(slice, cookie);
+		}
+	}
+
+	public static void endAsync(String slice, int cookie) {
+		if (ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+			Trace.endAsyncSection(slice, cookie);
+		}
+	}
+
+	public static void counter(String name, long value) {
+		if (ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+			Trace.setCounter(name, value);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.content.Context;
+import android.graphics.PixelFormat;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.WindowManager;
+import android.widget.TextView;
+
+/**
+* Opt-in on-screen performance HUD. It refreshes at most once per REFRESH_MS from PerfStats'
+* cached counters and never reads the settings provider. The window is not touchable, so it never
+* gets in the way of the overlay underneath.
+*
+* Frame times come from FrameMetrics, which only exists for an activity Window; the overlay and
+* floating button views are added straight to the WindowManager and have none. The frames row is
+* therefore MainActivity's alone and is labelled so, and it stays empty when the service runs in
+* the :overlay process, away from the activity.
+*/
+public class PerfHud {
+
+	private static final long REFRESH_MS = 1000;
+
+	private final WindowManager windowManager;
+	private final TextView hudView;
+	// Same thread as the window, i.e. whichever thread creates the HUD
+	private final Handler handler = new Handler(Looper.myLooper());
+	private final StringBuilder text = new StringBuilder(256);
+	private final int[] framePercentiles = new int[3];
+	private final PerfStats stats = PerfStats.getInstance();
+	private final boolean activityInProcess;
+	private WindowManager.LayoutParams params;
+	private boolean shown = false;
+
+	private final Runnable refresh = new Runnable() {
+		@Override
+		public void run() {
+			render();
+			handler.postDelayed(this, REFRESH_MS);
+		}
+	};
+
+	// activityInProcess: whether MainActivity, the only source of frame stats, can run in this process
+	public PerfHud(Context context, WindowManager windowManager, boolean activityInProcess) {
+		this.windowManager = windowManager;
+		this.activityInProcess = activityInProcess;
+		hudView = new TextView(context);
+		hudView.setTextColor(0xff80ff80);
+		hudView.setBackgroundColor(0x99000000);
+		hudView.setTextSize(TypedValue.COMPLEX_UNIT_SP, 10);
+		hudView.setTypeface(Typeface.MONOSPACE);
+		int padding = (int) (4 * context.getResources().getDisplayMetrics().density);
+		hudView.setPadding(padding, padding, padding, padding);
+	}
+
+	public void show() {
+		if (shown) {
+			return;
+		}
+		params = new WindowManager.LayoutParams(WindowManager.LayoutParams.WRAP_CONTENT,
+				WindowManager.LayoutParams.WRAP_CONTENT, WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY,
+				WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE
+						| WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN,
+				PixelFormat.TRANSLUCENT);
+		params.gravity = Gravity.TOP | Gravity.END;
+		windowManager.addView(hudView, params);
+		shown = true;
+		handler.post(refresh);
+	}
+
+	public void hide() {
+		if (!shown) {
+			return;
+		}
+		handler.removeCallbacks(refresh);
+		windowManager.removeView(hudView);
+		shown = false;
+	}
+
+	/**
+	* Overlay windows all have the same type and stack in the order they were added, so a black
+	* screen added after the HUD covers it. Re-adding puts the HUD back on top; call it after
+	* showing an overlay. Only costs anything while the HUD is on.
+	*/
+	public void raise() {
+		if (!shown) {
+			return;
+		}
+		windowManager.removeView(hudView);
+		windowManager.addView(hudView, params);
+	}
+
+	// Screen off: keep the window but stop refreshing
+	public void setPaused(boolean paused) {
+		if (!shown) {
+			return;
+		}
+		handler.removeCallbacks(refresh);
+		if (!paused) {
+			handler.post(refresh);
+		}
+	}
+
+	private void render() {
+		text.setLength(0);
+		if (activityInProcess) {
+			int frames = stats.drainFramePercentiles(framePercentiles);
+			text.append("app UI frames/s ").append(frames * 1000 / REFRESH_MS);
+			if (frames > 0) {
+				text.append("  p50 ").append(framePercentiles[0]).append(" p90 ").append(framePercentiles[1])
+						.append(" p99 ").append(framePercentiles[2]).append(" ms");
+			}
+		} else {
+			text.append("app UI frames: other process");
+		}
+		text.append("\nclock wakeups/min ").append(stats.clockWakeups.perMinute());
+		text.append("\nsettings writes/min ").append(stats.settingsWrites.perMinute());
+		text.append("\ntap-to-black ").append(stats.lastToggleLatencyMs).append(" ms");
+		text.append("\nwindow brightness ").append(stats.windowBrightness);
+		text.append("\nsystem brightness ").append(stats.systemBrightness)
+				.append(stats.systemBrightnessControlled ? " (controlled)" : "");
+		hudView.setText(text);
+	}
+}
@@ -0,0 +1,115 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+/**
+* Process-wide cached counters for the performance HUD. Hot paths only bump counters or store
+* the value they just wrote, so the HUD never has to read the settings provider to show state.
+*/
+public class PerfStats {
+
+	// Events per rolling minute, in one-second buckets
+	public static class RateCounter {
+		private final int[] counts = new int[60];
+		private final long[] seconds = new long[60];
+
+		public synchronized void increment() {
+			long second = SystemClock.uptimeMillis() / 1000;
+			int slot = (int) (second % 60);
+			if (seconds[slot] != second) {
+				seconds[slot] = second;
+				counts[slot] = 0;
+			}
+			counts[slot]++;
+		}
+
+		public synchronized int perMinute() {
+			long second = SystemClock.uptimeMillis() / 1000;
+			int total = 0;
+			for (int i = 0; i < 60; i++) {
+				if (second - seconds[i] < 60) {
+					total += counts[i];
+				}
+			}
+			return total;
+		}
+	}
+
+	private static final int FRAME_BUCKETS = 100; // 1 ms each, the last one collects everything slower
+
+	private static PerfStats instance;
+
+	public final RateCounter clockWakeups = new RateCounter();
+	public final RateCounter settingsWrites = new RateCounter();
+
+	public volatile long lastToggleLatencyMs = -1;
+	public volatile float windowBrightness = -1f;
+	public volatile int systemBrightness = -1;
+	public volatile boolean systemBrightnessControlled = false;
+
+	private final int[] frameHistogram = new int[FRAME_BUCKETS];
+	private int frameCount;
+	private Window.OnFrameMetricsAvailableListener frameMetricsListener;
+
+	public static synchronized PerfStats getInstance() {
+		if (instance == null) {
+			instance = new PerfStats();
+		}
+		return instance;
+	}
+
+	// Feeds FrameMetrics of the given window into the frame-time histogram
+	public void trackFrames(Window window) {
+		if (frameMetricsListener == null) {
+			frameMetricsListener = (w, frameMetrics, dropCount) -> {
+				long durationMs = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION) / 1000000;
+				synchronized (frameHistogram) {
+					frameHistogram[(int) Math.min(durationMs, FRAME_BUCKETS - 1)]++;
+					frameCount++;
+				}
+			};
+		}
+		window.addOnFrameMetricsAvailableListener(frameMetricsListener, new Handler(Looper.getMainLooper()));
+	}
+
+	public void untrackFrames(Window window) {
+		if (frameMetricsListener != null) {
+			window.removeOnFrameMetricsAvailableListener(frameMetricsListener);
+		}
+	}
+
+	/**
+	* Writes p50/p90/p99 frame times in ms of the frames seen since the last call into out and
+	* starts a new window. Returns the number of frames, 0 leaves out untouched.
+	*/
+	public int drainFramePercentiles(int[] out) {
+		synchronized (frameHistogram) {
+			int count = frameCount;
+			if (count > 0) {
+				out[0] = frameBucket(count * 50 / 100);
+				out[1] = frameBucket(count * 90 / 100);
+				out[2] = frameBucket(count * 99 / 100);
+			}
+			for (int i = 0; i < FRAME_BUCKETS; i++) {
+				frameHistogram[i] = 0;
+			}
+			frameCount = 0;
+			return count;
+		}
+	}
+
+	private int frameBucket(int rank) {
+		int seen = 0;
+		for (int i = 0; i < FRAME_BUCKETS; i++) {
+			seen += frameHistogram[i];
+			if (seen > rank) {
+				return i;
+			}
+		}
+		return FRAME_BUCKETS - 1;
+	}
+}
@@ -41,10 +41,12 @@ public class PermissionManager {
 					if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
 						if (Settings.canDrawOverlays(activity)) {
 							Log.d(TAG, "Overlay permission granted.");
+							OverlayEventLog.getInstance().record(OverlayEventLog.EVENT_PERMISSION_OVERLAY, 1);
 							// Now check for Write Settings permission
 							checkWriteSettingsPermission();
 						} else {
 							Log.d(TAG, "Overlay permission denied.");
+							OverlayEventLog.getInstance().record(OverlayEventLog.EVENT_PERMISSION_OVERLAY, 0);
 							handlePermissionDenial("Overlay");
 						}
 					}
@@ -55,12 +57,14 @@ public class PermissionManager {
 				result -> {
 					if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && Settings.System.canWrite(activity)) {
 						Log.d(TAG, "Write Settings permission granted.");
+						OverlayEventLog.getInstance().record(OverlayEventLog.EVENT_PERMISSION_WRITE_SETTINGS, 1);
 						prefsManager.resetTotalDenials();
 						if (callback != null) {
 							callback.onAllPermissionsGranted();
 						}
 					} else {
 						Log.d(TAG, "Write Settings permission denied.");
+						OverlayEventLog.getInstance().record(OverlayEventLog.EVENT_PERMISSION_WRITE_SETTINGS, 0);
 						// Even if Write Settings is denied, we can still function with overlay
 						if (callback != null) {
 							callback.onEssentialPermissionGranted();
@@ -131,7 +135,7 @@ public class PermissionManager {
 	*/
 	private void showWriteSettingsExplanation() {
 		// Check if we've hit the limit for asking
-		if (prefsManager.getTotalDenials() >= AppPreferencesManager.MAX_TOTAL_DENIALS) {
+		if (PermissionPromptPolicy.isDenialLimitReached(prefsManager.getTotalDenials())) {
 			// We've asked too many times, just proceed with overlay only
 			if (callback != null) {
 				callback.onEssentialPermissionGranted();
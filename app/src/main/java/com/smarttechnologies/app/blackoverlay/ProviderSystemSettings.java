@@ -0,0 +1,36 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.Build;
+import android.provider.Settings;
+
+// SystemSettings backed by the settings provider
+public class ProviderSystemSettings implements SystemSettings {
+
+	private final Context context;
+	private final ContentResolver contentResolver;
+
+	public ProviderSystemSettings(Context context) {
+		this.context = context.getApplicationContext();
+		contentResolver = this.context.getContentResolver();
+	}
+
+	@Override
+	public int getInt(String name) throws Settings.SettingNotFoundException {
+		return Settings.System.getInt(contentResolver, name);
+	}
+
+	@Override
+	public void putInt(String name, int value) {
+		Settings.System.putInt(contentResolver, name, value);
+	}
+
+	@Override
+	public boolean canWrite() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+			return Settings.System.canWrite(context);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,51 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.os.Build;
+import android.view.Display;
+import android.view.View;
+import android.view.WindowManager;
+
+/**
+* Asks for the panel's slowest refresh rate while the untouchable overlay is up. The overlay is black
+* with at most a once-a-minute clock, so 90/120 Hz buys nothing, and on LTPO panels the lower rate is
+* a real display power saving. The hint lives in the overlay's own LayoutParams and view, so removing
+* or parking the window drops it and the system goes back to its own choice.
+*/
+public final class RefreshRateHint {
+
+	private RefreshRateHint() {
+	}
+
+	// Slowest mode at the current resolution; a mode at another resolution would also resize the display
+	public static Display.Mode findLowRefreshMode(Display display) {
+		Display.Mode current = display.getMode();
+		Display.Mode lowest = current;
+		for (Display.Mode mode : display.getSupportedModes()) {
+			if (mode.getPhysicalWidth() == current.getPhysicalWidth()
+					&& mode.getPhysicalHeight() == current.getPhysicalHeight()
+					&& mode.getRefreshRate() < lowest.getRefreshRate()) {
+				lowest = mode;
+			}
+		}
+		return lowest;
+	}
+
+	// Returns the requested rate in Hz. Set on the params before the window is attached or relaid out.
+	public static float apply(Display display, WindowManager.LayoutParams params, View view) {
+		Display.Mode mode = findLowRefreshMode(display);
+		params.preferredDisplayModeId = mode.getModeId();
+		params.preferredRefreshRate = mode.getRefreshRate();
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.VANILLA_ICE_CREAM) {
+			// Per-view vote for frame rate aware (ARR) devices, which otherwise may ignore the mode hint
+			view.setRequestedFrameRate(View.REQUESTED_FRAME_RATE_CATEGORY_LOW);
+		}
+		return mode.getRefreshRate();
+	}
+
+	// The warm view is reused by the touchable overlay, so its vote has to go with the hint
+	public static void clear(View view) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.VANILLA_ICE_CREAM) {
+			view.setRequestedFrameRate(View.REQUESTED_FRAME_RATE_CATEGORY_DEFAULT);
+		}
+	}
+}
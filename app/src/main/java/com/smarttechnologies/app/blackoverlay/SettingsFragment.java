@@ -1,15 +1,21 @@
 package com.smarttechnologies.app.blackoverlay;
 
+import android.app.StatusBarManager;
+import android.content.ComponentName;
+import android.graphics.drawable.Icon;
+import android.os.Build;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.CheckBox;
 import android.widget.LinearLayout;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 
 public class SettingsFragment extends Fragment {
@@ -24,6 +30,9 @@ public class SettingsFragment extends Fragment {
 	private CheckBox checkboxQuickTiles;
 	private CheckBox checkboxBatteryOptimization;
 	private CheckBox checkboxHideFloatingButton;
+	private CheckBox checkboxPerfHud;
+	private CheckBox checkboxOverlayProcess;
+	private CheckBox checkboxOpaqueOverlay;
 
 	// Clickable sections
 	private LinearLayout settingsUpgradePro;
@@ -32,6 +41,10 @@ public class SettingsFragment extends Fragment {
 	private LinearLayout settingsNotifications;
 	private LinearLayout settingsAppLanguage;
 	private LinearLayout settingsTapsToWake;
+	private TextView tapsToWakeSummary;
+	private LinearLayout settingsIdleTimeout;
+	private TextView idleTimeoutSummary;
+	private LinearLayout settingsBatteryMeasurement;
 
 	public SettingsFragment() {
 		// Required empty public constructor
@@ -62,8 +75,17 @@ public class SettingsFragment extends Fragment {
 		checkboxReduceBrightness = view.findViewById(R.id.checkbox_reduce_brightness);
 		checkboxOledBurnIn = view.findViewById(R.id.checkbox_oled_burn_in);
 		checkboxQuickTiles = view.findViewById(R.id.checkbox_quick_tiles);
+		checkboxQuickTiles.setChecked(OverlayTileService.isEnabled(requireContext()));
 		checkboxBatteryOptimization = view.findViewById(R.id.checkbox_battery_optimization);
 		checkboxHideFloatingButton = view.findViewById(R.id.checkbox_hide_floating_button);
+		checkboxPerfHud = view.findViewById(R.id.checkbox_perf_hud);
+		checkboxPerfHud.setChecked(AppPreferencesManager.getInstance(requireContext()).getPerfHudEnabled());
+		checkboxOverlayProcess = view.findViewById(R.id.checkbox_overlay_process);
+		checkboxOverlayProcess
+				.setChecked(AppPreferencesManager.getInstance(requireContext()).getOverlayProcessEnabled());
+		checkboxOpaqueOverlay = view.findViewById(R.id.checkbox_opaque_overlay);
+		checkboxOpaqueOverlay
+				.setChecked(AppPreferencesManager.getInstance(requireContext()).getOpaqueOverlayEnabled());
 
 		// Clickable sections
 		settingsUpgradePro = view.findViewById(R.id.settings_upgrade_pro);
@@ -72,6 +94,13 @@ public class SettingsFragment extends Fragment {
 		settingsNotifications = view.findViewById(R.id.settings_notifications);
 		settingsAppLanguage = view.findViewById(R.id.settings_app_language);
 		settingsTapsToWake = view.findViewById(R.id.settings_taps_to_wake);
+		tapsToWakeSummary = view.findViewById(R.id.taps_to_wake_summary);
+		settingsBatteryMeasurement = view.findViewById(R.id.settings_battery_measurement);
+		tapsToWakeSummary.setText(String.valueOf(AppPreferencesManager.getInstance(requireContext()).getTapsToWake()));
+		settingsIdleTimeout = view.findViewById(R.id.settings_idle_timeout);
+		idleTimeoutSummary = view.findViewById(R.id.idle_timeout_summary);
+		idleTimeoutSummary
+				.setText(describeIdleTimeout(AppPreferencesManager.getInstance(requireContext()).getIdleTimeoutMinutes()));
 	}
 
 	private void setupListeners() {
@@ -85,8 +114,9 @@ public class SettingsFragment extends Fragment {
 				v -> Toast.makeText(getContext(), "Notifications clicked", Toast.LENGTH_SHORT).show());
 		settingsAppLanguage.setOnClickListener(
 				v -> Toast.makeText(getContext(), "App Language clicked", Toast.LENGTH_SHORT).show());
-		settingsTapsToWake.setOnClickListener(
-				v -> Toast.makeText(getContext(), "Taps to Wake clicked", Toast.LENGTH_SHORT).show());
+		settingsTapsToWake.setOnClickListener(v -> showTapsToWakeDialog());
+		settingsIdleTimeout.setOnClickListener(v -> showIdleTimeoutDialog());
+		settingsBatteryMeasurement.setOnClickListener(v -> showBatteryMeasurementDialog());
 
 		// Checkbox change listeners
 		checkboxAlwaysOn.setOnCheckedChangeListener((buttonView, isChecked) -> {
@@ -116,7 +146,17 @@ public class SettingsFragment extends Fragment {
 		});
 
 		checkboxQuickTiles.setOnCheckedChangeListener((buttonView, isChecked) -> {
-			Toast.makeText(getContext(), "Quick Tiles: " + (isChecked ? "On" : "Off"), Toast.LENGTH_SHORT).show();
+			OverlayTileService.setEnabled(requireContext(), isChecked);
+			if (isChecked && Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+				// Offers to place the tile instead of sending the user to the Quick Settings editor
+				StatusBarManager statusBarManager = requireContext().getSystemService(StatusBarManager.class);
+				statusBarManager.requestAddTileService(new ComponentName(requireContext(), OverlayTileService.class),
+						getString(R.string.app_name), Icon.createWithResource(requireContext(), R.drawable.ic_quick_tile_white_24dp),
+						requireContext().getMainExecutor(), result -> {
+						});
+			} else {
+				Toast.makeText(getContext(), "Quick Tiles: " + (isChecked ? "On" : "Off"), Toast.LENGTH_SHORT).show();
+			}
 		});
 
 		checkboxBatteryOptimization.setOnCheckedChangeListener((buttonView, isChecked) -> {
@@ -128,5 +168,73 @@ public class SettingsFragment extends Fragment {
 			Toast.makeText(getContext(), "Floating Button: " + (isChecked ? "Hidden" : "Visible"), Toast.LENGTH_SHORT)
 					.show();
 		});
+
+		checkboxPerfHud.setOnCheckedChangeListener((buttonView, isChecked) -> {
+			AppPreferencesManager.getInstance(requireContext()).setPerfHudEnabled(isChecked);
+			Toast.makeText(getContext(), "Performance HUD: " + (isChecked ? "On" : "Off") + " (applies on next start)",
+					Toast.LENGTH_SHORT).show();
+		});
+
+		checkboxOpaqueOverlay.setOnCheckedChangeListener((buttonView, isChecked) -> {
+			AppPreferencesManager.getInstance(requireContext()).setOpaqueOverlayEnabled(isChecked);
+			Toast.makeText(getContext(), "Opaque overlay: " + (isChecked ? "On" : "Off") + " (applies on next start)",
+					Toast.LENGTH_SHORT).show();
+		});
+
+		checkboxOverlayProcess.setOnCheckedChangeListener((buttonView, isChecked) -> {
+			AppPreferencesManager.getInstance(requireContext()).setOverlayProcessEnabled(isChecked);
+			FloatingButtonService.switchProcess(requireContext(), isChecked);
+			Toast.makeText(getContext(), "Overlay process: " + (isChecked ? "Separate" : "Shared"), Toast.LENGTH_SHORT)
+					.show();
+		});
+	}
+
+	private void showBatteryMeasurementDialog() {
+		new AlertDialog.Builder(requireContext()).setTitle("Battery A/B Measurement").setMessage(
+				"The overlay will switch between its modes every 5 minutes for 30 minutes while battery current is logged. Unplug the device, set the screen timeout above 30 minutes and leave it alone until it finishes.")
+				.setPositiveButton("Start", (dialog, which) -> {
+					FloatingButtonService.start(requireContext(), FloatingButtonService.ACTION_MEASURE_BATTERY);
+				}).setNegativeButton("Cancel", null).show();
+	}
+
+	private void showTapsToWakeDialog() {
+		AppPreferencesManager prefsManager = AppPreferencesManager.getInstance(requireContext());
+		String[] choices = new String[AppPreferencesManager.MAX_TAPS_TO_WAKE];
+		for (int i = 0; i < choices.length; i++) {
+			choices[i] = String.valueOf(i + 1);
+		}
+
+		new AlertDialog.Builder(requireContext()).setTitle("Taps to Wake")
+				.setSingleChoiceItems(choices, prefsManager.getTapsToWake() - 1, (dialog, which) -> {
+					// Read by the overlay every time it is shown
+					prefsManager.setTapsToWake(which + 1);
+					tapsToWakeSummary.setText(choices[which]);
+					dialog.dismiss();
+				}).setNegativeButton("Cancel", null).show();
+	}
+
+	private void showIdleTimeoutDialog() {
+		AppPreferencesManager prefsManager = AppPreferencesManager.getInstance(requireContext());
+		int[] minutes = AppPreferencesManager.IDLE_TIMEOUT_CHOICES_MINUTES;
+		String[] choices = new String[minutes.length];
+		int checked = -1;
+		for (int i = 0; i < minutes.length; i++) {
+			choices[i] = describeIdleTimeout(minutes[i]);
+			if (minutes[i] == prefsManager.getIdleTimeoutMinutes()) {
+				checked = i;
+			}
+		}
+
+		new AlertDialog.Builder(requireContext()).setTitle("Hide Button When Idle")
+				.setSingleChoiceItems(choices, checked, (dialog, which) -> {
+					// Read by the service the next time its idle timer is armed
+					prefsManager.setIdleTimeoutMinutes(minutes[which]);
+					idleTimeoutSummary.setText(choices[which]);
+					dialog.dismiss();
+				}).setNegativeButton("Cancel", null).show();
+	}
+
+	private static String describeIdleTimeout(int minutes) {
+		return minutes == 0 ? "Never" : "After " + minutes + " minutes";
 	}
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+/**
+* Style 3: hours stacked above minutes, with the date below. Anything after the minutes
+* (the AM/PM marker in 12h mode) stays on the minutes row.
+*/
+public class StackedClockFace extends GlyphClockFace {
+
+	public StackedClockFace() {
+		super(new GlyphRow[] { new GlyphRow(64, Typeface.DEFAULT_BOLD), new GlyphRow(64, Typeface.DEFAULT),
+				new GlyphRow(16, Typeface.DEFAULT) }, new float[] { 0, 12 });
+	}
+
+	@Override
+	public void update(CharSequence time, CharSequence date, int changed, Rect dirty) {
+		if ((changed & ClockFormatter.TIME_CHANGED) != 0) {
+			int separator = indexOf(time, ':');
+			if (separator < 0) {
+				row(0).set(time, 0, time.length(), dirty);
+				row(1).set(time, 0, 0, dirty);
+			} else {
+				row(0).set(time, 0, separator, dirty);
+				row(1).set(time, separator + 1, time.length(), dirty);
+			}
+		}
+		if ((changed & ClockFormatter.DATE_CHANGED) != 0) {
+			row(2).set(date, 0, date.length(), dirty);
+		}
+	}
+
+	private static int indexOf(CharSequence text, char c) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,17 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.provider.Settings;
+
+/**
+* The Settings.System calls BrightnessManager makes. Each one is a binder call into the settings
+* provider on device; tests substitute a counting stand-in to hold the toggle path to its budget.
+*/
+public interface SystemSettings {
+
+	int getInt(String name) throws Settings.SettingNotFoundException;
+
+	void putInt(String name, int value);
+
+	// WRITE_SETTINGS granted
+	boolean canWrite();
+}
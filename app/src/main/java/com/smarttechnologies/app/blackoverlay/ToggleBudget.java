@@ -0,0 +1,194 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.os.SystemClock;
+import android.util.Log;
+import java.io.PrintWriter;
+
+/**
+* Counts the expensive calls (WindowManager IPCs, Settings.System reads and writes, layout
+* inflations) made during one show/hide cycle and checks them against fixed budgets when the
+* overlay is hidden. Wakeups (clock ticks) are checked against the per-hour WakeupBudget of the
+* mode the overlay was shown in. An over-budget cycle is only logged and recorded in the event log;
+* the unit tests hold the toggle path to these budgets.
+*
+* Only counts between begin() and end(); the floating button and the prewarm are not part of a
+* toggle. Window ops are counted on the overlay thread and settings calls on BrightnessManager's
+* settings thread, so end() is queued behind the hide's settings writes.
+*/
+public class ToggleBudget {
+
+	private static final String TAG = "ToggleBudget";
+
+	// attach + detach: addView/removeView when cold, updateViewLayout twice when warm
+	public static final int MAX_WINDOW_OPS = 2;
+	// original brightness value and mode
+	public static final int MAX_SETTINGS_READS = 2;
+	// manual mode + minimum on show, mode + value on hide
+	public static final int MAX_SETTINGS_WRITES = 4;
+	public static final int MAX_INFLATIONS_COLD = 1;
+	public static final int MAX_INFLATIONS_WARM = 0;
+
+	// Bits of the EVENT_BUDGET_EXCEEDED value
+	public static final int EXCEEDED_WINDOW_OPS = 1;
+	public static final int EXCEEDED_SETTINGS_READS = 1 << 1;
+	public static final int EXCEEDED_SETTINGS_WRITES = 1 << 2;
+	public static final int EXCEEDED_INFLATIONS = 1 << 3;
+	public static final int EXCEEDED_WAKEUPS = 1 << 4;
+
+	private static ToggleBudget instance;
+
+	// One show/hide cycle's counts. Two are kept: a hide's end() is queued behind its restore writes,
+	// so the next show can begin before the previous cycle has been checked.
+	private static final class Cycle {
+		int id;
+		boolean open;
+		int windowOps;
+		int settingsReads;
+		int settingsWrites;
+		int inflations;
+		long wakeups;
+		int resumes;
+		int wakeupsPerHour;
+		long startUptime;
+		long elapsedMs;
+
+		String describe() {
+			return "windowOps=" + windowOps + " settingsReads=" + settingsReads + " settingsWrites=" + settingsWrites
+					+ " inflations=" + inflations + " wakeups=" + wakeups + "/"
+					+ WakeupBudget.allowed(wakeupsPerHour, elapsedMs, resumes) + " in " + elapsedMs + "ms";
+		}
+	}
+
+	private final Cycle[] cycles = { new Cycle(), new Cycle() };
+	private int cycle;
+	private String lastDescription = "none";
+	private int lastExceeded;
+
+	public static synchronized ToggleBudget getInstance() {
+		if (instance == null) {
+			instance = new ToggleBudget();
+		}
+		return instance;
+	}
+
+	// wakeupsPerHour is WakeupBudget.perHour() for the mode being shown; returns the id to pass to end()
+	public synchronized int begin(int wakeupsPerHour) {
+		cycle++;
+		Cycle current = cycles[cycle & 1];
+		current.id = cycle;
+		current.open = true;
+		current.windowOps = 0;
+		current.settingsReads = 0;
+		current.settingsWrites = 0;
+		current.inflations = 0;
+		current.wakeups = 0;
+		current.resumes = 0;
+		current.wakeupsPerHour = wakeupsPerHour;
+		current.startUptime = SystemClock.uptimeMillis();
+		return cycle;
+	}
+
+	/**
+	* Id of the cycle in progress, 0 outside of one. Settings calls run later on another thread, so
+	* BrightnessManager takes the id when it queues them and passes it back with the count; a hide's
+	* restore writes then still land in their own cycle after the next show began.
+	*/
+	public synchronized int currentCycle() {
+		return current() != null ? cycle : 0;
+	}
+
+	private Cycle current() {
+		return cycleFor(cycle);
+	}
+
+	private Cycle cycleFor(int id) {
+		Cycle c = cycles[id & 1];
+		return c.open && c.id == id ? c : null;
+	}
+
+	public synchronized void countWindowOp() {
+		Cycle c = current();
+		if (c != null) {
+			c.windowOps++;
+		}
+	}
+
+	public synchronized void countSettingsRead(int cycleId) {
+		Cycle c = cycleFor(cycleId);
+		if (c != null) {
+			c.settingsReads++;
+		}
+	}
+
+	public synchronized void countSettingsWrite(int cycleId) {
+		Cycle c = cycleFor(cycleId);
+		if (c != null) {
+			c.settingsWrites++;
+		}
+	}
+
+	public synchronized void countInflation() {
+		Cycle c = current();
+		if (c != null) {
+			c.inflations++;
+		}
+	}
+
+	public synchronized void countWakeup() {
+		Cycle c = current();
+		if (c != null) {
+			c.wakeups++;
+		}
+	}
+
+	// Screen on; each one may cost a catch-up render
+	public synchronized void countResume() {
+		Cycle c = current();
+		if (c != null) {
+			c.resumes++;
+		}
+	}
+
+	// Returns a mask of EXCEEDED_* bits, 0 when the cycle stayed within budget
+	public synchronized int end(int cycleId, boolean warm) {
+		Cycle c = cycleFor(cycleId);
+		if (c == null) {
+			return 0;
+		}
+		c.open = false;
+		c.elapsedMs = SystemClock.uptimeMillis() - c.startUptime;
+		int exceeded = 0;
+		if (c.windowOps > MAX_WINDOW_OPS) {
+			exceeded |= EXCEEDED_WINDOW_OPS;
+		}
+		if (c.settingsReads > MAX_SETTINGS_READS) {
+			exceeded |= EXCEEDED_SETTINGS_READS;
+		}
+		if (c.settingsWrites > MAX_SETTINGS_WRITES) {
+			exceeded |= EXCEEDED_SETTINGS_WRITES;
+		}
+		if (c.inflations > (warm ? MAX_INFLATIONS_WARM : MAX_INFLATIONS_COLD)) {
+			exceeded |= EXCEEDED_INFLATIONS;
+		}
+		if (!WakeupBudget.isWithinBudget(c.wakeups, c.wakeupsPerHour, c.elapsedMs, c.resumes)) {
+			exceeded |= EXCEEDED_WAKEUPS;
+		}
+		// The slot is reused two cycles later, so dump() gets a copy
+		lastDescription = c.describe();
+		lastExceeded = exceeded;
+		if (exceeded != 0) {
+			OverlayEventLog.getInstance().record(OverlayEventLog.EVENT_BUDGET_EXCEEDED, exceeded);
+			Log.w(TAG, "Toggle over budget (" + (warm ? "warm" : "cold") + "): " + lastDescription);
+		}
+		return exceeded;
+	}
+
+	// EXCEEDED_* mask of the last cycle checked
+	public synchronized int getLastExceeded() {
+		return lastExceeded;
+	}
+
+	public synchronized void dump(PrintWriter writer) {
+		writer.println("Last toggle: " + lastDescription + " exceeded=" + lastExceeded);
+	}
+}
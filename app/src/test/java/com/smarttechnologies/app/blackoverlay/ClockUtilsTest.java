@@ -0,0 +1,75 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import static org.junit.Assert.assertEquals;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.format.DateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+/**
+* Shows the overlay clock in two sessions within one minute, each on a freshly inflated
+* ClockFaceView like the cold path, and checks that both views render the time and the date.
+*/
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class ClockUtilsTest {
+
+	// 2024-03-09 22:30:17.250 UTC, a Saturday
+	private static final long WALL = 1710023417250L;
+
+	private Application application;
+	private long wallMillis = WALL;
+	private ClockUtils clockUtils;
+
+	@Before
+	public void setUp() {
+		application = RuntimeEnvironment.getApplication();
+		TimeSource time = new TimeSource() {
+			@Override
+			public long currentTimeMillis() {
+				return wallMillis;
+			}
+
+			@Override
+			public long uptimeMillis() {
+				return SystemClock.uptimeMillis();
+			}
+		};
+		clockUtils = new ClockUtils(application, new Handler(Looper.getMainLooper()), time, true);
+	}
+
+	@Test
+	public void secondSessionInTheSameMinuteRendersTimeAndDate() {
+		ClockFormatter expected = new ClockFormatter();
+		expected.configure(Locale.getDefault(), TimeZone.getDefault(), DateFormat.is24HourFormat(application));
+		expected.format(WALL);
+		String description = "Current time is " + expected.getTime() + ". Today's date is " + expected.getDate() + ". "
+				+ application.getString(R.string.unlock_description);
+
+		ClockFaceView first = new ClockFaceView(application);
+		clockUtils.startUpdatingTime(first);
+		Shadows.shadowOf(Looper.getMainLooper()).idle();
+		assertEquals(description, first.getContentDescription().toString());
+		clockUtils.stopUpdatingTime();
+
+		wallMillis += 20 * 1000;
+		ClockFaceView second = new ClockFaceView(application);
+		clockUtils.startUpdatingTime(second);
+		Shadows.shadowOf(Looper.getMainLooper()).idle();
+		assertEquals(description, second.getContentDescription().toString());
+		clockUtils.stopUpdatingTime();
+	}
+}
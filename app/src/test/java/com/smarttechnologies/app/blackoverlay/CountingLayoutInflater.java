@@ -0,0 +1,48 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Counts layout inflations; clones share the count
+public class CountingLayoutInflater extends LayoutInflater {
+
+	private final AtomicInteger inflations;
+
+	public CountingLayoutInflater(LayoutInflater original, Context context) {
+		this(original, context, new AtomicInteger());
+	}
+
+	private CountingLayoutInflater(LayoutInflater original, Context context, AtomicInteger inflations) {
+		super(original, context);
+		this.inflations = inflations;
+	}
+
+	public int getInflations() {
+		return inflations.get();
+	}
+
+	@Override
+	public LayoutInflater cloneInContext(Context newContext) {
+		return new CountingLayoutInflater(this, newContext, inflations);
+	}
+
+	@Override
+	public View inflate(int resource, ViewGroup root) {
+		inflations.incrementAndGet();
+		return super.inflate(resource, root);
+	}
+
+	// Bare tags (FrameLayout, ImageView) live in android.widget; the default only tries android.view
+	@Override
+	protected View onCreateView(String name, AttributeSet attrs) throws ClassNotFoundException {
+		try {
+			return createView(name, "android.widget.", attrs);
+		} catch (ClassNotFoundException e) {
+			return super.onCreateView(name, attrs);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.content.Intent;
+import android.os.Handler;
+import android.view.LayoutInflater;
+import android.view.WindowManager;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.robolectric.Shadows;
+
+/**
+* FloatingButtonService with counting stand-ins for the WindowManager, the layout inflater and
+* Settings.System, and helpers that run the overlay thread and the settings thread to completion
+* under Robolectric's paused looper.
+*/
+public class CountingOverlayService extends FloatingButtonService {
+
+	private static final long TIMEOUT_S = 5;
+
+	private final CountingSystemSettings settings = new CountingSystemSettings();
+	private CountingWindowManager windowManager;
+	private CountingLayoutInflater layoutInflater;
+	private long tapUptime = 1;
+
+	@Override
+	public synchronized Object getSystemService(String name) {
+		if (WINDOW_SERVICE.equals(name)) {
+			if (windowManager == null) {
+				windowManager = new CountingWindowManager((WindowManager) super.getSystemService(name));
+			}
+			return windowManager;
+		} else if (LAYOUT_INFLATER_SERVICE.equals(name)) {
+			if (layoutInflater == null) {
+				layoutInflater = new CountingLayoutInflater((LayoutInflater) super.getSystemService(name), this);
+			}
+			return layoutInflater;
+		}
+		return super.getSystemService(name);
+	}
+
+	@Override
+	protected SystemSettings createSystemSettings() {
+		return settings;
+	}
+
+	// TileService.requestListeningState() has no Robolectric shadow
+	@Override
+	protected void requestTileUpdate() {
+	}
+
+	public CountingWindowManager getCountingWindowManager() {
+		return (CountingWindowManager) getSystemService(WINDOW_SERVICE);
+	}
+
+	public CountingLayoutInflater getCountingLayoutInflater() {
+		return (CountingLayoutInflater) getSystemService(LAYOUT_INFLATER_SERVICE);
+	}
+
+	public CountingSystemSettings getCountingSettings() {
+		return settings;
+	}
+
+	// A toggle as the Quick Settings tile sends it; each one carries its own tap time so none is debounced
+	public void sendToggle() {
+		Intent intent = new Intent(this, FloatingButtonService.class).setAction(ACTION_TOGGLE)
+				.putExtra(EXTRA_TAP_UPTIME, tapUptime++);
+		onStartCommand(intent, 0, 1);
+		settle();
+	}
+
+	public void runOnOverlayThread(Runnable runnable) {
+		new Handler(getOverlayLooper()).post(runnable);
+		settle();
+	}
+
+	/**
+	* Runs the overlay thread until it is idle, then waits for the settings writes queued so far and
+	* the budget checks queued behind them. The overlay thread is idled a few times because idle
+	* handlers (deferred init, prewarm) run between passes and may queue more.
+	*/
+	public void settle() {
+		for (int i = 0; i < 3; i++) {
+			Shadows.shadowOf(getOverlayLooper()).idle();
+		}
+		CountDownLatch written = new CountDownLatch(1);
+		new Handler(getOverlayLooper()).post(() -> runAfterPendingSettingsWrites(written::countDown));
+		Shadows.shadowOf(getOverlayLooper()).idle();
+		try {
+			if (!written.await(TIMEOUT_S, TimeUnit.SECONDS)) {
+				throw new AssertionError("Settings writes did not finish");
+			}
+		} catch (InterruptedException e) {
+			throw new AssertionError(e);
+		}
+	}
+}
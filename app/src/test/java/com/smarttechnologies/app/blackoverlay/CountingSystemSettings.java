@@ -0,0 +1,54 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.provider.Settings;
+import java.util.HashMap;
+import java.util.Map;
+
+// In-memory Settings.System that counts reads and writes; starts in automatic brightness mode,
+// which makes a show write both the mode and the value
+public class CountingSystemSettings implements SystemSettings {
+
+	public static final int INITIAL_BRIGHTNESS = 128;
+
+	private final Map<String, Integer> values = new HashMap<>();
+	private int reads;
+	private int writes;
+
+	public CountingSystemSettings() {
+		values.put(Settings.System.SCREEN_BRIGHTNESS, INITIAL_BRIGHTNESS);
+		values.put(Settings.System.SCREEN_BRIGHTNESS_MODE, Settings.System.SCREEN_BRIGHTNESS_MODE_AUTOMATIC);
+	}
+
+	public synchronized int getReads() {
+		return reads;
+	}
+
+	public synchronized int getWrites() {
+		return writes;
+	}
+
+	public synchronized int get(String name) {
+		return values.get(name);
+	}
+
+	@Override
+	public synchronized int getInt(String name) throws Settings.SettingNotFoundException {
+		reads++;
+		Integer value = values.get(name);
+		if (value == null) {
+			throw new Settings.SettingNotFoundException(name);
+		}
+		return value;
+	}
+
+	@Override
+	public synchronized void putInt(String name, int value) {
+		writes++;
+		values.put(name, value);
+	}
+
+	@Override
+	public boolean canWrite() {
+		return true;
+	}
+}
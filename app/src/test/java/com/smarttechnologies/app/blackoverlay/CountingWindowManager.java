@@ -0,0 +1,86 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import android.view.Display;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Passes every call on to the real WindowManager and counts the ones that are an IPC to the window manager
+public class CountingWindowManager implements WindowManager {
+
+	private final WindowManager windowManager;
+	private final AtomicInteger adds = new AtomicInteger();
+	private final AtomicInteger removes = new AtomicInteger();
+	private final AtomicInteger updates = new AtomicInteger();
+	private final List<View> views = new CopyOnWriteArrayList<>();
+
+	public CountingWindowManager(WindowManager windowManager) {
+		this.windowManager = windowManager;
+	}
+
+	public int getAdds() {
+		return adds.get();
+	}
+
+	public int getRemoves() {
+		return removes.get();
+	}
+
+	public int getUpdates() {
+		return updates.get();
+	}
+
+	public int getWindowOps() {
+		return adds.get() + removes.get() + updates.get();
+	}
+
+	// Windows attached right now through this WindowManager
+	public int getAttached() {
+		return views.size();
+	}
+
+	public List<View> getViews() {
+		return views;
+	}
+
+	@Override
+	public void addView(View view, ViewGroup.LayoutParams params) {
+		adds.incrementAndGet();
+		windowManager.addView(view, params);
+		views.add(view);
+	}
+
+	@Override
+	public void updateViewLayout(View view, ViewGroup.LayoutParams params) {
+		updates.incrementAndGet();
+		windowManager.updateViewLayout(view, params);
+	}
+
+	@Override
+	public void removeView(View view) {
+		removes.incrementAndGet();
+		windowManager.removeView(view);
+		views.remove(view);
+	}
+
+	@Override
+	public void removeViewImmediate(View view) {
+		removes.incrementAndGet();
+		windowManager.removeViewImmediate(view);
+		views.remove(view);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public Display getDefaultDisplay() {
+		return windowManager.getDefaultDisplay();
+	}
+
+	@Override
+	public void requestAppKeyboardShortcuts(KeyboardShortcutsReceiver receiver, int deviceId) {
+		windowManager.requestAppKeyboardShortcuts(receiver, deviceId);
+	}
+}
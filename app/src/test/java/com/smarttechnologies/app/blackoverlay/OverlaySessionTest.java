@@ -0,0 +1,220 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.PixelFormat;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.MessageQueue;
+import android.view.View;
+import android.view.WindowManager;
+import java.time.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.util.ReflectionHelpers;
+
+/**
+* Shows and closes an overlay session 1,000 times, with screen off/on and clock ticks in between,
+* and checks that nothing builds up: pending messages, registered receivers and attached windows
+* return to where they started after every cycle, and every component's pause is matched by a
+* resume or its stop.
+*/
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class OverlaySessionTest {
+
+	private static final int CYCLES = 1000;
+
+	private Application application;
+	private CountingWindowManager windowManager;
+	private Handler handler;
+	private ClockUtils clockUtils;
+
+	// Checks the order of the calls OverlaySession makes on a component
+	private static final class RecordingComponent implements OverlaySession.Component {
+		int starts;
+		int stops;
+		int pauses;
+		int resumes;
+		boolean running;
+		boolean paused;
+
+		@Override
+		public void start() {
+			assertFalse("Started twice", running);
+			running = true;
+			starts++;
+		}
+
+		@Override
+		public void pause() {
+			assertTrue("Paused while stopped", running);
+			assertFalse("Paused twice", paused);
+			paused = true;
+			pauses++;
+		}
+
+		@Override
+		public void resume() {
+			assertTrue("Resumed while not paused", running && paused);
+			paused = false;
+			resumes++;
+		}
+
+		@Override
+		public void stop() {
+			assertTrue("Stopped while stopped", running);
+			running = false;
+			paused = false;
+			stops++;
+		}
+	}
+
+	@Before
+	public void setUp() {
+		application = RuntimeEnvironment.getApplication();
+		windowManager = new CountingWindowManager((WindowManager) application.getSystemService(Context.WINDOW_SERVICE));
+		handler = new Handler(Looper.getMainLooper());
+		clockUtils = new ClockUtils(application, handler, ClockUtils.SYSTEM_TIME, true);
+	}
+
+	@Test
+	public void coldSessionsLeaveNothingBehind() {
+		runCycles(false);
+	}
+
+	@Test
+	public void warmSessionsLeaveNothingBehind() {
+		runCycles(true);
+	}
+
+	private void runCycles(boolean warm) {
+		ClockFaceView warmView = null;
+		WindowManager.LayoutParams parkedParams = null;
+		if (warm) {
+			warmView = new ClockFaceView(application);
+			warmView.setVisibility(View.GONE);
+			parkedParams = overlayParams(WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE);
+			windowManager.addView(warmView, parkedParams);
+		}
+		idle();
+		int windows = windowManager.getAttached();
+		int messages = pendingMessages();
+		int receivers = registeredReceivers();
+		RecordingComponent component = new RecordingComponent();
+
+		for (int i = 0; i < CYCLES; i++) {
+			String cycle = "cycle " + i + ": ";
+			ClockFaceView view = warm ? warmView : new ClockFaceView(application);
+			OverlaySession session = warm ? new OverlaySession(windowManager, view, parkedParams)
+					: new OverlaySession(windowManager, view);
+			// Screen already off when shown, every fourth cycle
+			boolean screenOff = i % 4 == 3;
+			session.setPaused(screenOff);
+			session.addComponent(clockComponent(view));
+			session.addComponent(component);
+			session.attach(overlayParams(0));
+			assertEquals(cycle + "window not attached", warm ? windows : windows + 1, windowManager.getAttached());
+			idle();
+
+			if (i % 3 == 0) {
+				// A minute passes: the fallback post ticks, then a late TIME_TICK arrives
+				Shadows.shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(62));
+				application.sendBroadcast(new Intent(Intent.ACTION_TIME_TICK));
+				idle();
+			}
+			if (i % 5 == 0) {
+				// Screen flips twice and ends up as it was
+				for (int j = 0; j < 2; j++) {
+					session.setPaused(!screenOff);
+					idle();
+					session.setPaused(screenOff);
+					idle();
+				}
+			}
+
+			session.close();
+			idle();
+			assertFalse(cycle + "still attached", session.isAttached());
+			assertEquals(cycle + "windows", windows, windowManager.getAttached());
+			assertEquals(cycle + "pending messages", messages, pendingMessages());
+			assertEquals(cycle + "receivers", receivers, registeredReceivers());
+			assertFalse(cycle + "component still running", component.running);
+		}
+
+		assertEquals(CYCLES, component.starts);
+		assertEquals(CYCLES, component.stops);
+		// Sessions closed with the screen off account for the pauses without a resume
+		int closedPaused = CYCLES / 4;
+		assertEquals(component.pauses, component.resumes + closedPaused);
+		// One window op to show and one to close, per cycle
+		int setupOps = warm ? 1 : 0;
+		assertEquals(2 * CYCLES + setupOps, windowManager.getWindowOps());
+	}
+
+	// Wired like the service wires the overlay clock
+	private OverlaySession.Component clockComponent(ClockFaceView view) {
+		return new OverlaySession.Component() {
+			@Override
+			public void start() {
+				clockUtils.startUpdatingTime(view);
+			}
+
+			@Override
+			public void pause() {
+				clockUtils.pauseUpdatingTime();
+			}
+
+			@Override
+			public void resume() {
+				clockUtils.resumeUpdatingTime();
+			}
+
+			@Override
+			public void stop() {
+				clockUtils.stopUpdatingTime();
+			}
+		};
+	}
+
+	private static WindowManager.LayoutParams overlayParams(int extraFlags) {
+		return new WindowManager.LayoutParams(WindowManager.LayoutParams.MATCH_PARENT,
+				WindowManager.LayoutParams.MATCH_PARENT, WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY,
+				WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | extraFlags, PixelFormat.OPAQUE);
+	}
+
+	// Also lets the frame the last change scheduled run; the clock's fallback is a minute out
+	private static void idle() {
+		Shadows.shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(50));
+	}
+
+	// Messages for the clock's handler still queued, due or not: ticks, fallbacks and broadcasts
+	private int pendingMessages() {
+		MessageQueue queue = Looper.getMainLooper().getQueue();
+		int count = 0;
+		for (Message message = ReflectionHelpers.getField(queue, "mMessages"); message != null;
+				message = ReflectionHelpers.getField(message, "next")) {
+			if (message.getTarget() == handler) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private int registeredReceivers() {
+		return Shadows.shadowOf(application).getRegisteredReceivers().size();
+	}
+}
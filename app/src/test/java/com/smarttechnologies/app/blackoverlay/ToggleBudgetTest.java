@@ -0,0 +1,181 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentCallbacks2;
+import android.os.SystemClock;
+import android.os.VibratorManager;
+import android.provider.Settings;
+import android.view.MotionEvent;
+import android.view.View;
+import java.lang.reflect.Field;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowVibrator;
+
+/**
+* Holds every show/hide cycle to the ToggleBudget limits, counted by stand-ins rather than by
+* ToggleBudget itself: window manager calls, layout inflations, Settings.System reads and writes and
+* vibrations.
+*/
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class ToggleBudgetTest {
+
+	private static final int CYCLES = 20;
+
+	private AppPreferencesManager prefs;
+	private ServiceController<CountingOverlayService> controller;
+	private CountingOverlayService service;
+
+	@Before
+	public void setUp() throws Exception {
+		// The singleton keeps the first Application it was given; every test gets a new one
+		Field instance = AppPreferencesManager.class.getDeclaredField("instance");
+		instance.setAccessible(true);
+		instance.set(null, null);
+		prefs = AppPreferencesManager.getInstance(RuntimeEnvironment.getApplication());
+		prefs.setClockEnabled(true);
+		prefs.setPerfHudEnabled(false);
+		prefs.setIdleTimeoutMinutes(0);
+	}
+
+	@After
+	public void tearDown() {
+		if (controller != null) {
+			controller.destroy();
+		}
+	}
+
+	private void startService(boolean preventTouch, boolean warm) {
+		prefs.setPreventTouch(preventTouch);
+		prefs.setWarmOverlayEnabled(warm);
+		controller = Robolectric.buildService(CountingOverlayService.class).create();
+		service = controller.get();
+		service.settle();
+	}
+
+	@Test
+	public void coldUntouchableCycleStaysWithinBudget() {
+		startService(true, false);
+		assertCyclesWithinBudget(ToggleBudget.MAX_INFLATIONS_COLD, ToggleBudget.MAX_SETTINGS_READS);
+	}
+
+	@Test
+	public void warmUntouchableCycleStaysWithinBudget() {
+		startService(true, true);
+		assertCyclesWithinBudget(ToggleBudget.MAX_INFLATIONS_WARM, ToggleBudget.MAX_SETTINGS_READS);
+		// Parked between cycles, never removed
+		assertEquals(0, service.getCountingWindowManager().getRemoves());
+	}
+
+	@Test
+	public void warmOverlaySurvivesTheAppGoingToTheBackground() {
+		startService(true, true);
+		service.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+		service.settle();
+		assertCyclesWithinBudget(ToggleBudget.MAX_INFLATIONS_WARM, ToggleBudget.MAX_SETTINGS_READS);
+	}
+
+	@Test
+	public void warmOverlayIsRebuiltAfterAMemoryTrim() {
+		startService(true, true);
+		service.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+		service.settle();
+		// The first show after the trim is cold; its hide parks a new warm overlay
+		service.sendToggle();
+		service.sendToggle();
+		assertCyclesWithinBudget(ToggleBudget.MAX_INFLATIONS_WARM, ToggleBudget.MAX_SETTINGS_READS);
+	}
+
+	@Test
+	public void touchableCycleStaysWithinBudget() {
+		startService(false, false);
+		// The touchable overlay leaves the system brightness alone
+		assertCyclesWithinBudget(ToggleBudget.MAX_INFLATIONS_COLD, 0);
+	}
+
+	private void assertCyclesWithinBudget(int maxInflations, int maxSettingsReads) {
+		CountingWindowManager windowManager = service.getCountingWindowManager();
+		CountingLayoutInflater inflater = service.getCountingLayoutInflater();
+		CountingSystemSettings settings = service.getCountingSettings();
+		int attached = windowManager.getAttached();
+		for (int i = 0; i < CYCLES; i++) {
+			int windowOps = windowManager.getWindowOps();
+			int inflations = inflater.getInflations();
+			int reads = settings.getReads();
+			int writes = settings.getWrites();
+
+			service.sendToggle();
+			service.sendToggle();
+
+			String cycle = "cycle " + i + ": ";
+			assertTrue(cycle + "window ops", windowManager.getWindowOps() - windowOps <= ToggleBudget.MAX_WINDOW_OPS);
+			assertTrue(cycle + "inflations", inflater.getInflations() - inflations <= maxInflations);
+			assertTrue(cycle + "settings reads", settings.getReads() - reads <= maxSettingsReads);
+			assertTrue(cycle + "settings writes", settings.getWrites() - writes <= ToggleBudget.MAX_SETTINGS_WRITES);
+			assertEquals(cycle + "ToggleBudget disagrees", 0, ToggleBudget.getInstance().getLastExceeded());
+			assertEquals(cycle + "windows left attached", attached, windowManager.getAttached());
+		}
+		// The hide put back what the show changed
+		assertEquals(CountingSystemSettings.INITIAL_BRIGHTNESS, settings.get(Settings.System.SCREEN_BRIGHTNESS));
+		assertEquals(Settings.System.SCREEN_BRIGHTNESS_MODE_AUTOMATIC,
+				settings.get(Settings.System.SCREEN_BRIGHTNESS_MODE));
+		assertFalse("Toggling vibrated", vibrator().isVibrating());
+	}
+
+	@Test
+	public void unlockGestureVibratesOnceAndHides() {
+		startService(true, true);
+		service.sendToggle();
+		int windowOps = service.getCountingWindowManager().getWindowOps();
+
+		View overlay = findOverlay();
+		int taps = prefs.getTapsToWake();
+		service.runOnOverlayThread(() -> {
+			long time = SystemClock.uptimeMillis();
+			for (int i = 0; i < taps; i++) {
+				dispatch(overlay, time, MotionEvent.ACTION_DOWN);
+				dispatch(overlay, time + 40, MotionEvent.ACTION_UP);
+				time += 120;
+			}
+		});
+
+		assertTrue("Unlock did not vibrate", vibrator().isVibrating());
+		// Hidden again: one more window op, the park
+		assertEquals(windowOps + 1, service.getCountingWindowManager().getWindowOps());
+		assertEquals(0, ToggleBudget.getInstance().getLastExceeded());
+	}
+
+	private View findOverlay() {
+		for (View view : service.getCountingWindowManager().getViews()) {
+			if (view instanceof ClockFaceView) {
+				return view;
+			}
+		}
+		throw new AssertionError("Overlay not attached");
+	}
+
+	private static void dispatch(View view, long time, int action) {
+		MotionEvent event = MotionEvent.obtain(time, time, action, 100, 100, 0);
+		view.dispatchTouchEvent(event);
+		event.recycle();
+	}
+
+	private static ShadowVibrator vibrator() {
+		return Shadows.shadowOf(RuntimeEnvironment.getApplication().getSystemService(VibratorManager.class)
+				.getDefaultVibrator());
+	}
+}
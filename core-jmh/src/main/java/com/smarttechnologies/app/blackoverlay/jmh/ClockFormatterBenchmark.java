@@ -0,0 +1,61 @@
+package com.smarttechnologies.app.blackoverlay.jmh;
+
+import com.smarttechnologies.app.blackoverlay.ClockFormatter;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* The per-minute clock tick: a new minute every call, a new day every 1440 calls. The unchanged
+* case is what a spurious wakeup costs.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClockFormatterBenchmark {
+
+	private static final long MINUTE_MS = 60 * 1000L;
+
+	@Param({ "true", "false" })
+	public boolean is24Hour;
+
+	private final ClockFormatter formatter = new ClockFormatter();
+	private long now;
+
+	@Setup
+	public void setUp() {
+		formatter.configure(Locale.US, TimeZone.getTimeZone("Europe/Berlin"), is24Hour);
+		now = 1700000000000L;
+	}
+
+	@Benchmark
+	public int formatNextMinute() {
+		now += MINUTE_MS;
+		return formatter.format(now);
+	}
+
+	@Benchmark
+	public int formatSameMinute() {
+		return formatter.format(now);
+	}
+
+	// What every non-TIME_TICK broadcast pays when nothing actually changed
+	@Benchmark
+	public boolean configureUnchanged() {
+		return formatter.configure(Locale.US, TimeZone.getTimeZone("Europe/Berlin"), is24Hour);
+	}
+}
@@ -0,0 +1,74 @@
+package com.smarttechnologies.app.blackoverlay.jmh;
+
+import com.smarttechnologies.app.blackoverlay.GestureRecognizer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Classification cost per touch stream, using the service's thresholds at density 2.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GestureRecognizerBenchmark {
+
+	private static final float TOUCH_SLOP = 16;
+	private static final float SWIPE_DISTANCE = 192;
+
+	private GestureRecognizer unlock;
+	private GestureRecognizer button;
+	private long time;
+
+	@Setup
+	public void setUp() {
+		unlock = new GestureRecognizer(3, 500, 300, 500, TOUCH_SLOP, SWIPE_DISTANCE);
+		button = new GestureRecognizer(1, 200, 300, 500, TOUCH_SLOP, SWIPE_DISTANCE);
+	}
+
+	// Three taps completing the unlock sequence
+	@Benchmark
+	public int tapSequence() {
+		int result = GestureRecognizer.GESTURE_NONE;
+		for (int i = 0; i < 3; i++) {
+			time += 100;
+			unlock.onDown(time, 500, 500);
+			time += 50;
+			result = unlock.onUp(time, 502, 501);
+		}
+		time += 1000;
+		return result;
+	}
+
+	// A floating button drag: down, 30 moves (one per frame), up
+	@Benchmark
+	public int drag() {
+		time += 1000;
+		button.onDown(time, 100, 100);
+		int result = GestureRecognizer.GESTURE_NONE;
+		for (int i = 1; i <= 30; i++) {
+			time += 16;
+			result |= button.onMove(time, 100 + i * 10, 100 + i * 4);
+		}
+		return result | button.onUp(time + 16, 400, 220);
+	}
+
+	@Benchmark
+	public int swipe() {
+		time += 1000;
+		unlock.onDown(time, 800, 500);
+		unlock.onMove(time + 16, 700, 505);
+		return unlock.onUp(time + 120, 400, 510);
+	}
+}
@@ -0,0 +1,47 @@
+package com.smarttechnologies.app.blackoverlay.jmh;
+
+import com.smarttechnologies.app.blackoverlay.BrightnessState;
+import com.smarttechnologies.app.blackoverlay.PermissionPromptPolicy;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Policy evaluation and brightness bookkeeping. Both are tiny; these exist so that anything heavier
+* sneaking into them shows up as a jump rather than going unnoticed.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionPromptPolicyBenchmark {
+
+	private final BrightnessState brightnessState = new BrightnessState();
+	private int counter;
+
+	@Benchmark
+	public boolean promptPolicy() {
+		int denials = counter++ & 15;
+		return PermissionPromptPolicy.canShowInitialLaunchPrompt(denials & 3, denials)
+				| PermissionPromptPolicy.canReprompt(denials & 1, 2, denials);
+	}
+
+	// One show/hide worth of bookkeeping
+	@Benchmark
+	public boolean brightnessSaveRestore() {
+		boolean needsManualMode = brightnessState.save(counter++ & 255, BrightnessState.MODE_AUTOMATIC);
+		brightnessState.setControlled(true);
+		boolean restore = brightnessState.hasOriginalMode() && brightnessState.hasOriginalValue();
+		brightnessState.setControlled(false);
+		return needsManualMode & restore;
+	}
+}
@@ -0,0 +1,26 @@
+package com.smarttechnologies.app.blackoverlay;
+
+/**
+* Row format of the battery A/B measurement: one line per sample, unreported values left empty.
+*/
+public final class BatteryCsv {
+
+	public static final String HEADER = "elapsed_ms,config,step_ms,current_ua,charge_uah\n";
+
+	private BatteryCsv() {
+	}
+
+	public static void appendRow(StringBuilder out, long elapsedMs, String config, long stepMs, BatterySource source) {
+		out.append(elapsedMs).append(',').append(config).append(',').append(stepMs).append(',');
+		appendValue(out, source.currentNowMicroAmps());
+		out.append(',');
+		appendValue(out, source.chargeCounterMicroAmpHours());
+		out.append('\n');
+	}
+
+	private static void appendValue(StringBuilder out, long value) {
+		if (value != Long.MIN_VALUE) {
+			out.append(value);
+		}
+	}
+}
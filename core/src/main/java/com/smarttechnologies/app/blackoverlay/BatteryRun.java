@@ -0,0 +1,107 @@
+package com.smarttechnologies.app.blackoverlay;
+
+/**
+* Schedule and sampling of the battery A/B run, without the Android timer and file writing around
+* it: steps the overlay through every CONFIG_* for STEP_MS each and samples the battery every
+* SAMPLE_PERIOD_MS into an in-memory CSV. start() and sample() return the uptime of the next
+* sample for the caller to post at, so a fake TimeSource and BatterySource can run the whole half
+* hour in a unit test.
+*/
+public class BatteryRun {
+
+	public interface Target {
+		// Puts the overlay into the given CONFIG_* and returns the label actually applied (fallbacks differ)
+		String applyConfiguration(int config);
+	}
+
+	public static final int CONFIG_NO_OVERLAY = 0;
+	public static final int CONFIG_TOUCHABLE = 1;
+	public static final int CONFIG_UNTOUCHABLE_WINDOW_CLOCK = 2;
+	public static final int CONFIG_UNTOUCHABLE_WINDOW_NO_CLOCK = 3;
+	public static final int CONFIG_UNTOUCHABLE_COMBINED_CLOCK = 4;
+	public static final int CONFIG_UNTOUCHABLE_COMBINED_NO_CLOCK = 5;
+	public static final int CONFIG_COUNT = 6;
+
+	public static final long STEP_MS = 5 * 60 * 1000L;
+	public static final long SAMPLE_PERIOD_MS = 5 * 1000L;
+
+	// Returned by sample() once the last step is done
+	public static final long FINISHED = -1;
+
+	private final BatterySource source;
+	private final TimeSource timeSource;
+	private final Target target;
+	private final StringBuilder csv = new StringBuilder(32 * 1024);
+
+	private boolean running;
+	private int config;
+	private String label;
+	private long startUptime;
+	private long stepStartUptime;
+
+	public BatteryRun(BatterySource source, TimeSource timeSource, Target target) {
+		this.source = source;
+		this.timeSource = timeSource;
+		this.target = target;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	public int getConfig() {
+		return config;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	// Everything sampled so far, header included
+	public CharSequence getCsv() {
+		return csv;
+	}
+
+	// Starts over from the first step; returns the uptime of the first sample
+	public long start() {
+		running = true;
+		csv.setLength(0);
+		csv.append(BatteryCsv.HEADER);
+		startUptime = timeSource.uptimeMillis();
+		return enterStep(CONFIG_NO_OVERLAY);
+	}
+
+	// Stops sampling; the CSV so far is kept but the overlay is left as it is
+	public void cancel() {
+		running = false;
+	}
+
+	/**
+	* Takes one sample and moves on to the next step when this one is over. Returns the uptime of
+	* the next sample, or FINISHED once the last step is done and the overlay is back to
+	* CONFIG_NO_OVERLAY.
+	*/
+	public long sample() {
+		if (!running) {
+			return FINISHED;
+		}
+		long now = timeSource.uptimeMillis();
+		long stepMs = now - stepStartUptime;
+		BatteryCsv.appendRow(csv, now - startUptime, label, stepMs, source);
+		if (stepMs < STEP_MS) {
+			return now + SAMPLE_PERIOD_MS;
+		} else if (config + 1 < CONFIG_COUNT) {
+			return enterStep(config + 1);
+		}
+		running = false;
+		target.applyConfiguration(CONFIG_NO_OVERLAY);
+		return FINISHED;
+	}
+
+	private long enterStep(int config) {
+		this.config = config;
+		label = target.applyConfiguration(config);
+		stepStartUptime = timeSource.uptimeMillis();
+		return stepStartUptime + SAMPLE_PERIOD_MS;
+	}
+}
@@ -0,0 +1,15 @@
+package com.smarttechnologies.app.blackoverlay;
+
+/**
+* One battery reading. On device this is BatteryManager; off device a fake can replay a recorded or
+* synthetic discharge curve. Implementations return Long.MIN_VALUE for a property the device does not
+* report.
+*/
+public interface BatterySource {
+
+	// Instantaneous current in microamperes; the sign convention differs between devices
+	long currentNowMicroAmps();
+
+	// Remaining charge in microampere-hours
+	long chargeCounterMicroAmpHours();
+}
@@ -0,0 +1,50 @@
+package com.smarttechnologies.app.blackoverlay;
+
+/**
+* Save/restore bookkeeping for the system brightness. BrightnessManager does the Settings.System
+* reads and writes; this records what was there before so a restore puts back exactly that.
+* Mode values follow Settings.System.SCREEN_BRIGHTNESS_MODE_*.
+*/
+public class BrightnessState {
+
+	public static final int UNKNOWN = -1;
+	public static final int MODE_MANUAL = 0;
+	public static final int MODE_AUTOMATIC = 1;
+
+	private int originalValue = UNKNOWN;
+	private int originalMode = UNKNOWN;
+	// Read from the overlay thread while the settings thread updates it
+	private volatile boolean controlled = false;
+
+	// Remembers the user's values; returns true if the mode has to be switched to manual first
+	public boolean save(int value, int mode) {
+		originalValue = value;
+		originalMode = mode;
+		return mode == MODE_AUTOMATIC;
+	}
+
+	// False after a restore, or when taking control failed and there is nothing to restore
+	public void setControlled(boolean controlled) {
+		this.controlled = controlled;
+	}
+
+	public boolean isControlled() {
+		return controlled;
+	}
+
+	public boolean hasOriginalMode() {
+		return originalMode != UNKNOWN;
+	}
+
+	public boolean hasOriginalValue() {
+		return originalValue != UNKNOWN;
+	}
+
+	public int getOriginalMode() {
+		return originalMode;
+	}
+
+	public int getOriginalValue() {
+		return originalValue;
+	}
+}
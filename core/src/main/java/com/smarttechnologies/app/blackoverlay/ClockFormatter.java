@@ -0,0 +1,135 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import java.text.DateFormatSymbols;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+* Formats the overlay clock ("HH:mm" or "h:mm a") and date ("EEE, MMM dd") into reusable buffers.
+* Locale names, digits and the zone are resolved once in {@link #configure}; {@link #format} itself
+* allocates nothing, so it can run on every tick.
+*/
+public class ClockFormatter {
+
+	public static final int TIME_CHANGED = 1;
+	public static final int DATE_CHANGED = 1 << 1;
+
+	private static final long MINUTE_MS = 60 * 1000L;
+	private static final long DAY_MS = 24 * 60 * MINUTE_MS;
+
+	private Locale locale;
+	private String timeZoneId;
+	private TimeZone timeZone;
+	private boolean is24Hour;
+
+	private String[] weekdayNames;
+	private String[] monthNames;
+	private String[] amPmNames;
+	private char zeroDigit = '0';
+
+	private final StringBuilder timeText = new StringBuilder(16);
+	private final StringBuilder dateText = new StringBuilder(32);
+	private long lastMinute = Long.MIN_VALUE;
+	private long lastDay = Long.MIN_VALUE;
+
+	/**
+	* Rebuilds the cached symbols if any of the inputs differ from the current ones.
+	* Returns true when the cache was rebuilt.
+	*/
+	public boolean configure(Locale locale, TimeZone timeZone, boolean is24Hour) {
+		if (locale.equals(this.locale) && timeZone.getID().equals(timeZoneId) && is24Hour == this.is24Hour) {
+			return false;
+		}
+		this.locale = locale;
+		this.timeZone = timeZone;
+		this.timeZoneId = timeZone.getID();
+		this.is24Hour = is24Hour;
+
+		DateFormatSymbols symbols = DateFormatSymbols.getInstance(locale);
+		weekdayNames = symbols.getShortWeekdays();
+		monthNames = symbols.getShortMonths();
+		amPmNames = symbols.getAmPmStrings();
+		zeroDigit = DecimalFormatSymbols.getInstance(locale).getZeroDigit();
+		invalidate();
+		return true;
+	}
+
+	// Forces the next format() to rewrite both buffers and report both as changed, for views that show nothing yet
+	public void invalidate() {
+		lastMinute = Long.MIN_VALUE;
+		lastDay = Long.MIN_VALUE;
+	}
+
+	/**
+	* Formats the given instant and returns a mask of {@link #TIME_CHANGED} and {@link #DATE_CHANGED}
+	* telling which buffers were rewritten. Must be called after {@link #configure}.
+	*/
+	public int format(long nowMillis) {
+		long local = nowMillis + timeZone.getOffset(nowMillis);
+		long minute = Math.floorDiv(local, MINUTE_MS);
+		long day = Math.floorDiv(local, DAY_MS);
+		int changed = 0;
+
+		if (minute != lastMinute) {
+			lastMinute = minute;
+			int minuteOfDay = (int) Math.floorMod(minute, 24 * 60L);
+			writeTime(minuteOfDay / 60, minuteOfDay % 60);
+			changed |= TIME_CHANGED;
+		}
+		if (day != lastDay) {
+			lastDay = day;
+			writeDate(day);
+			changed |= DATE_CHANGED;
+		}
+		return changed;
+	}
+
+	public CharSequence getTime() {
+		return timeText;
+	}
+
+	public CharSequence getDate() {
+		return dateText;
+	}
+
+	private void writeTime(int hour, int minute) {
+		timeText.setLength(0);
+		if (is24Hour) {
+			appendTwoDigits(timeText, hour);
+		} else {
+			int hour12 = hour % 12 == 0 ? 12 : hour % 12;
+			if (hour12 >= 10) {
+				timeText.append((char) (zeroDigit + hour12 / 10));
+			}
+			timeText.append((char) (zeroDigit + hour12 % 10));
+		}
+		timeText.append(':');
+		appendTwoDigits(timeText, minute);
+		if (!is24Hour) {
+			timeText.append(' ').append(amPmNames[hour < 12 ? 0 : 1]);
+		}
+	}
+
+	// Civil date from days since the epoch (proleptic Gregorian), see H. Hinnant's "chrono-compatible" algorithms
+	private void writeDate(long epochDay) {
+		long z = epochDay + 719468;
+		long era = Math.floorDiv(z, 146097);
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		int dayOfMonth = (int) (doy - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 2 : mp - 10); // 0-based, January = 0
+		// 1970-01-01 was a Thursday; Calendar.SUNDAY == 1
+		int weekday = (int) Math.floorMod(epochDay + 4, 7L) + 1;
+
+		dateText.setLength(0);
+		dateText.append(weekdayNames[weekday]).append(", ").append(monthNames[month]).append(' ');
+		appendTwoDigits(dateText, dayOfMonth);
+	}
+
+	private void appendTwoDigits(StringBuilder builder, int value) {
+		builder.append((char) (zeroDigit + value / 10)).append((char) (zeroDigit + value % 10));
+	}
+}
@@ -0,0 +1,28 @@
+package com.smarttechnologies.app.blackoverlay;
+
+/**
+* Drops a command that repeats the previous one within a short window, so a burst of identical
+* start intents (a notification action tapped twice, a retrying automation app) is applied once.
+* Commands are compared by a key built from the action and its argument. Not thread-safe; the
+* service only calls it from onStartCommand().
+*/
+public final class CommandDebouncer {
+
+	private final long windowMs;
+	private String lastKey;
+	private long lastUptime;
+
+	public CommandDebouncer(long windowMs) {
+		this.windowMs = windowMs;
+	}
+
+	// The window is measured from the last accepted command, so a steady stream still gets through
+	public boolean accept(String key, long uptime) {
+		if (key.equals(lastKey) && uptime - lastUptime < windowMs) {
+			return false;
+		}
+		lastKey = key;
+		lastUptime = uptime;
+		return true;
+	}
+}
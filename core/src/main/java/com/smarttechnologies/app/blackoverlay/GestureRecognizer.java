@@ -0,0 +1,156 @@
+package com.smarttechnologies.app.blackoverlay;
+
+/**
+* Allocation-free touch gesture state machine for the overlay and the floating button. It only sees
+* event times (MotionEvent.getEventTime(), uptime based) and coordinates, so it is plain Java and
+* can be tested and benchmarked off-device.
+*
+* Recognizes N-tap sequences, long presses, swipes and drags. Once a pointer has left the touch
+* slop, further moves return immediately, so ACTION_MOVE storms cost a single state check.
+*/
+public class GestureRecognizer {
+
+	public static final int GESTURE_NONE = 0;
+	public static final int GESTURE_TAP = 1; // a tap that did not complete the sequence
+	public static final int GESTURE_TAP_SEQUENCE = 2; // the Nth consecutive tap
+	public static final int GESTURE_LONG_PRESS = 3;
+	public static final int GESTURE_DRAG_START = 4;
+	public static final int GESTURE_SWIPE_LEFT = 5;
+	public static final int GESTURE_SWIPE_RIGHT = 6;
+	public static final int GESTURE_SWIPE_UP = 7;
+	public static final int GESTURE_SWIPE_DOWN = 8;
+
+	private static final int STATE_IDLE = 0;
+	private static final int STATE_PRESSED = 1;
+	private static final int STATE_DRAGGING = 2;
+	private static final int STATE_LONG_PRESSED = 3;
+
+	private static final long MAX_SWIPE_DURATION_MS = 500;
+
+	private int tapCount;
+	private final long maxTapDurationMs;
+	private final long tapGapMs;
+	private final long longPressTimeoutMs;
+	private final float touchSlopSquared;
+	private final float swipeMinDistanceSquared;
+
+	private int state = STATE_IDLE;
+	private long downTime;
+	private float downX;
+	private float downY;
+	private long lastTapUpTime;
+	private int consecutiveTaps;
+
+	/**
+	* @param tapCount taps needed for {@link #GESTURE_TAP_SEQUENCE}
+	* @param maxTapDurationMs longest press that still counts as a tap
+	* @param tapGapMs longest pause between one tap's up and the next tap's down
+	* @param longPressTimeoutMs hold time, within the slop, for a long press
+	* @param touchSlopPx movement that turns a press into a drag
+	* @param swipeMinDistancePx minimum travel of a quick drag to count as a swipe
+	*/
+	public GestureRecognizer(int tapCount, long maxTapDurationMs, long tapGapMs, long longPressTimeoutMs,
+			float touchSlopPx, float swipeMinDistancePx) {
+		this.tapCount = Math.max(1, tapCount);
+		this.maxTapDurationMs = maxTapDurationMs;
+		this.tapGapMs = tapGapMs;
+		this.longPressTimeoutMs = longPressTimeoutMs;
+		this.touchSlopSquared = touchSlopPx * touchSlopPx;
+		this.swipeMinDistanceSquared = swipeMinDistancePx * swipeMinDistancePx;
+	}
+
+	public void setTapCount(int tapCount) {
+		this.tapCount = Math.max(1, tapCount);
+		consecutiveTaps = 0;
+	}
+
+	public int getTapCount() {
+		return tapCount;
+	}
+
+	public boolean isDragging() {
+		return state == STATE_DRAGGING;
+	}
+
+	public int onDown(long eventTime, float x, float y) {
+		if (eventTime - lastTapUpTime > tapGapMs) {
+			consecutiveTaps = 0;
+		}
+		state = STATE_PRESSED;
+		downTime = eventTime;
+		downX = x;
+		downY = y;
+		return GESTURE_NONE;
+	}
+
+	public int onMove(long eventTime, float x, float y) {
+		if (state != STATE_PRESSED) {
+			return GESTURE_NONE;
+		}
+		float dx = x - downX;
+		float dy = y - downY;
+		if (dx * dx + dy * dy > touchSlopSquared) {
+			state = STATE_DRAGGING;
+			consecutiveTaps = 0;
+			return GESTURE_DRAG_START;
+		}
+		return checkLongPress(eventTime);
+	}
+
+	// Lets a caller report a long press from a timer without waiting for the next event
+	public int checkLongPress(long now) {
+		if (state == STATE_PRESSED && now - downTime >= longPressTimeoutMs) {
+			state = STATE_LONG_PRESSED;
+			consecutiveTaps = 0;
+			return GESTURE_LONG_PRESS;
+		}
+		return GESTURE_NONE;
+	}
+
+	public int onUp(long eventTime, float x, float y) {
+		int previousState = state;
+		state = STATE_IDLE;
+		long duration = eventTime - downTime;
+
+		if (previousState == STATE_DRAGGING) {
+			float dx = x - downX;
+			float dy = y - downY;
+			if (duration <= MAX_SWIPE_DURATION_MS && dx * dx + dy * dy >= swipeMinDistanceSquared) {
+				if (Math.abs(dx) >= Math.abs(dy)) {
+					return dx < 0 ? GESTURE_SWIPE_LEFT : GESTURE_SWIPE_RIGHT;
+				}
+				return dy < 0 ? GESTURE_SWIPE_UP : GESTURE_SWIPE_DOWN;
+			}
+			return GESTURE_NONE;
+		}
+		if (previousState != STATE_PRESSED) {
+			return GESTURE_NONE;
+		}
+		if (duration >= longPressTimeoutMs) {
+			consecutiveTaps = 0;
+			return GESTURE_LONG_PRESS;
+		}
+		if (duration > maxTapDurationMs) {
+			consecutiveTaps = 0;
+			return GESTURE_NONE;
+		}
+
+		lastTapUpTime = eventTime;
+		consecutiveTaps++;
+		if (consecutiveTaps >= tapCount) {
+			consecutiveTaps = 0;
+			return GESTURE_TAP_SEQUENCE;
+		}
+		return GESTURE_TAP;
+	}
+
+	public void onCancel() {
+		state = STATE_IDLE;
+		consecutiveTaps = 0;
+	}
+
+	public void reset() {
+		onCancel();
+		lastTapUpTime = 0;
+	}
+}
@@ -0,0 +1,46 @@
+package com.smarttechnologies.app.blackoverlay;
+
+/**
+* The overlay clock's tick without the Android scheduling around it: renders the current minute
+* through a ClockFormatter and works out when the next wall-clock minute starts on the uptime clock,
+* which is what Handler.postAtTime() takes. Driven by a TimeSource, so a fake clock can run a night
+* of ticks in a unit test.
+*
+* The system's TIME_TICK broadcast drives the ticks; it arrives on every minute anyway, so the clock
+* costs one wakeup per minute. A handler post at fallbackUptime() only renders when TIME_TICK is
+* late or missing and is pushed back by every tick.
+*/
+public class MinuteClock {
+
+	private static final long MINUTE_MS = 60 * 1000L;
+	// How late TIME_TICK may be before the fallback renders the minute itself
+	public static final long FALLBACK_GRACE_MS = 2000;
+
+	private final TimeSource timeSource;
+	private final ClockFormatter formatter;
+
+	public MinuteClock(TimeSource timeSource, ClockFormatter formatter) {
+		this.timeSource = timeSource;
+		this.formatter = formatter;
+	}
+
+	public ClockFormatter getFormatter() {
+		return formatter;
+	}
+
+	// Formats the current instant; returns the ClockFormatter mask of what changed
+	public int tick() {
+		return formatter.format(timeSource.currentTimeMillis());
+	}
+
+	// Uptime at which the next wall-clock minute starts
+	public long nextMinuteUptime() {
+		long now = timeSource.currentTimeMillis();
+		return timeSource.uptimeMillis() + MINUTE_MS - Math.floorMod(now, MINUTE_MS);
+	}
+
+	// Uptime for the fallback tick, a grace period after the next minute's TIME_TICK is due
+	public long fallbackUptime() {
+		return nextMinuteUptime() + FALLBACK_GRACE_MS;
+	}
+}
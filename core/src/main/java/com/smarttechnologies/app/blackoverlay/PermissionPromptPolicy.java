@@ -0,0 +1,26 @@
+package com.smarttechnologies.app.blackoverlay;
+
+/**
+* Decides whether the app may ask for a permission again. The counters themselves are stored by
+* AppPreferencesManager; this class only holds the limits and the rules built on them.
+*/
+public final class PermissionPromptPolicy {
+
+	public static final int MAX_TOTAL_DENIALS = 9; // Max total prompts allowed across all sessions and launches
+	public static final int MAX_INITIAL_LAUNCH_PROMPTS = 3; // Max times to show the prompt on first app open (onCreate)
+
+	private PermissionPromptPolicy() {
+	}
+
+	public static boolean isDenialLimitReached(int totalDenials) {
+		return totalDenials >= MAX_TOTAL_DENIALS;
+	}
+
+	public static boolean canShowInitialLaunchPrompt(int initialLaunchPromptCount, int totalDenials) {
+		return initialLaunchPromptCount < MAX_INITIAL_LAUNCH_PROMPTS && !isDenialLimitReached(totalDenials);
+	}
+
+	public static boolean canReprompt(int sessionPromptCount, int maxSessionPrompts, int totalDenials) {
+		return sessionPromptCount < maxSessionPrompts && !isDenialLimitReached(totalDenials);
+	}
+}
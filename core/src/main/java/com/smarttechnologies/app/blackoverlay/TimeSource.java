@@ -0,0 +1,13 @@
+package com.smarttechnologies.app.blackoverlay;
+
+/**
+* Wall and uptime clocks behind one interface, so timer code can be driven by a fake clock
+* (together with a paused looper) and hours of overlay time simulated in seconds.
+*/
+public interface TimeSource {
+
+	long currentTimeMillis();
+
+	// Same base as SystemClock.uptimeMillis(), the clock Handler.postAtTime() schedules against
+	long uptimeMillis();
+}
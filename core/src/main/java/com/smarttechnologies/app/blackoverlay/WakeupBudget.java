@@ -0,0 +1,38 @@
+package com.smarttechnologies.app.blackoverlay;
+
+/**
+* Wakeups per hour the overlay may cause in each mode. A clock face costs the system's TIME_TICK
+* broadcast once a minute, its handler fallback only fires when a broadcast is late; without a clock
+* nothing should wake the process periodically at all. Overnight sessions run for hours, so these are what the battery sees.
+*/
+public final class WakeupBudget {
+
+	public static final int UNTOUCHABLE_WITH_CLOCK_PER_HOUR = 60;
+	public static final int UNTOUCHABLE_NO_CLOCK_PER_HOUR = 0;
+	public static final int TOUCHABLE_PER_HOUR = 0;
+
+	// Initial render, and a late TIME_TICK arriving after its fallback already rendered the minute
+	public static final int SESSION_ALLOWANCE = 2;
+
+	private static final long HOUR_MS = 60 * 60 * 1000L;
+
+	private WakeupBudget() {
+	}
+
+	public static int perHour(boolean touchable, boolean clock) {
+		if (touchable) {
+			return TOUCHABLE_PER_HOUR;
+		}
+		return clock ? UNTOUCHABLE_WITH_CLOCK_PER_HOUR : UNTOUCHABLE_NO_CLOCK_PER_HOUR;
+	}
+
+	// Rounded up, so a session ending just after a tick is not over budget. Every resume (screen on)
+	// is allowed one catch-up render.
+	public static long allowed(int perHour, long elapsedMs, int resumes) {
+		return (perHour * elapsedMs + HOUR_MS - 1) / HOUR_MS + SESSION_ALLOWANCE + resumes;
+	}
+
+	public static boolean isWithinBudget(long wakeups, int perHour, long elapsedMs, int resumes) {
+		return wakeups <= allowed(perHour, elapsedMs, resumes);
+	}
+}
@@ -0,0 +1,118 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+// Runs the whole A/B schedule on fake clocks and a synthetic discharge, sampling wherever BatteryRun asks
+public class BatteryRunTest {
+
+	private static final long SAMPLES_PER_STEP = BatteryRun.STEP_MS / BatteryRun.SAMPLE_PERIOD_MS;
+
+	private final FakeTimeSource time = new FakeTimeSource(1_700_000_000_000L, 10_000L);
+	private final List<Integer> applied = new ArrayList<>();
+
+	// Draws a steady 100 mA, so the charge counter drops with uptime; the current can be switched off
+	private class FakeBattery implements BatterySource {
+		boolean reportsCurrent = true;
+
+		@Override
+		public long currentNowMicroAmps() {
+			return reportsCurrent ? -100_000 : Long.MIN_VALUE;
+		}
+
+		@Override
+		public long chargeCounterMicroAmpHours() {
+			return 3_000_000 - time.uptimeMillis() * 100_000 / 3_600_000;
+		}
+	}
+
+	private final FakeBattery battery = new FakeBattery();
+
+	private final BatteryRun run = new BatteryRun(battery, time, config -> {
+		applied.add(config);
+		// A device without the combined window falls back, and the label says so
+		return config == BatteryRun.CONFIG_UNTOUCHABLE_COMBINED_CLOCK ? "fallback" : "config" + config;
+	});
+
+	// Samples until the run finishes and returns the CSV rows without the header
+	private String[] runToEnd(long next) {
+		while (next != BatteryRun.FINISHED) {
+			time.advanceToUptime(next);
+			next = run.sample();
+		}
+		String csv = run.getCsv().toString();
+		assertTrue(csv.startsWith(BatteryCsv.HEADER));
+		return csv.substring(BatteryCsv.HEADER.length()).split("\n");
+	}
+
+	@Test
+	public void stepsThroughEveryConfigurationAndEndsWithoutOverlay() {
+		long startUptime = time.uptimeMillis();
+		String[] rows = runToEnd(run.start());
+
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, BatteryRun.CONFIG_NO_OVERLAY), applied);
+		assertFalse(run.isRunning());
+		assertEquals(BatteryRun.CONFIG_COUNT * SAMPLES_PER_STEP, rows.length);
+		assertEquals(startUptime + BatteryRun.CONFIG_COUNT * BatteryRun.STEP_MS, time.uptimeMillis());
+	}
+
+	@Test
+	public void samplesAtTheFixedPeriodWithinEachStep() {
+		long startUptime = time.uptimeMillis();
+		String[] rows = runToEnd(run.start());
+
+		for (int i = 0; i < rows.length; i++) {
+			String[] fields = rows[i].split(",", -1);
+			int step = (int) (i / SAMPLES_PER_STEP);
+			assertEquals((i + 1) * BatteryRun.SAMPLE_PERIOD_MS, Long.parseLong(fields[0]));
+			assertEquals(step == BatteryRun.CONFIG_UNTOUCHABLE_COMBINED_CLOCK ? "fallback" : "config" + step, fields[1]);
+			assertEquals((i % SAMPLES_PER_STEP + 1) * BatteryRun.SAMPLE_PERIOD_MS, Long.parseLong(fields[2]));
+			assertEquals("-100000", fields[3]);
+			long sampleUptime = startUptime + Long.parseLong(fields[0]);
+			assertEquals(3_000_000 - sampleUptime * 100_000 / 3_600_000, Long.parseLong(fields[4]));
+		}
+	}
+
+	@Test
+	public void leavesUnreportedValuesEmpty() {
+		battery.reportsCurrent = false;
+		String[] rows = runToEnd(run.start());
+
+		assertEquals("", rows[0].split(",", -1)[3]);
+		assertFalse(rows[0].split(",", -1)[4].isEmpty());
+	}
+
+	@Test
+	public void cancelStopsSamplingAndLeavesTheOverlayAlone() {
+		long next = run.start();
+		for (int i = 0; i < SAMPLES_PER_STEP + 3; i++) {
+			time.advanceToUptime(next);
+			next = run.sample();
+		}
+		run.cancel();
+
+		assertFalse(run.isRunning());
+		assertEquals(BatteryRun.FINISHED, run.sample());
+		assertEquals(Arrays.asList(0, 1), applied);
+		assertEquals(SAMPLES_PER_STEP + 3, run.getCsv().toString().split("\n").length - 1);
+	}
+
+	@Test
+	public void restartBeginsANewCsv() {
+		runToEnd(run.start());
+		applied.clear();
+		long next = run.start();
+		time.advanceToUptime(next);
+		run.sample();
+
+		assertEquals(Arrays.asList(0), applied);
+		assertEquals(BatteryCsv.HEADER + "5000,config0,5000,-100000," + battery.chargeCounterMicroAmpHours() + "\n",
+				run.getCsv().toString());
+	}
+}
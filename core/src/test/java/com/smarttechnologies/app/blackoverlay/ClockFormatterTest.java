@@ -0,0 +1,115 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.TimeZone;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClockFormatterTest {
+
+	private static final long MINUTE_MS = 60 * 1000L;
+	// 2024-03-09 22:30:17.250 UTC, a Saturday
+	private static final long SATURDAY_EVENING = 1710023417250L;
+	private static final int WARMUP_TICKS = 20_000;
+	private static final int MEASURED_TICKS = 100_000;
+
+	private ClockFormatter formatter;
+
+	@Before
+	public void setUp() {
+		formatter = new ClockFormatter();
+		formatter.configure(Locale.US, TimeZone.getTimeZone("UTC"), true);
+	}
+
+	@Test
+	public void formatsTwentyFourHourTime() {
+		formatter.format(SATURDAY_EVENING);
+		assertEquals("22:30", formatter.getTime().toString());
+		assertEquals("Sat, Mar 09", formatter.getDate().toString());
+	}
+
+	@Test
+	public void formatsTwelveHourTime() {
+		formatter.configure(Locale.US, TimeZone.getTimeZone("UTC"), false);
+		formatter.format(SATURDAY_EVENING);
+		assertEquals("10:30 PM", formatter.getTime().toString());
+		// Midnight is 12, not 0
+		formatter.format(SATURDAY_EVENING + 90 * MINUTE_MS);
+		assertEquals("12:00 AM", formatter.getTime().toString());
+	}
+
+	@Test
+	public void formatsInTheConfiguredZone() {
+		formatter.configure(Locale.US, TimeZone.getTimeZone("GMT+05:30"), true);
+		assertEquals(ClockFormatter.TIME_CHANGED | ClockFormatter.DATE_CHANGED, formatter.format(SATURDAY_EVENING));
+		assertEquals("04:00", formatter.getTime().toString());
+		assertEquals("Sun, Mar 10", formatter.getDate().toString());
+	}
+
+	@Test
+	public void reconfiguringWithTheSameInputsKeepsTheCache() {
+		assertFalse(formatter.configure(Locale.US, TimeZone.getTimeZone("UTC"), true));
+		assertTrue(formatter.configure(Locale.US, TimeZone.getTimeZone("UTC"), false));
+	}
+
+	@Test
+	public void invalidateReportsBothLinesWithinTheSameMinute() {
+		formatter.format(SATURDAY_EVENING);
+		assertEquals(0, formatter.format(SATURDAY_EVENING + 1000));
+		// A second session in the same minute, with views that show nothing yet
+		formatter.invalidate();
+		assertEquals(ClockFormatter.TIME_CHANGED | ClockFormatter.DATE_CHANGED, formatter.format(SATURDAY_EVENING + 2000));
+		assertEquals("22:30", formatter.getTime().toString());
+		assertEquals("Sat, Mar 09", formatter.getDate().toString());
+	}
+
+	@Test
+	public void reusesItsBuffers() {
+		CharSequence time = formatter.getTime();
+		CharSequence date = formatter.getDate();
+		for (int i = 0; i < 3 * 24 * 60; i++) {
+			formatter.format(SATURDAY_EVENING + i * MINUTE_MS);
+			assertSame(time, formatter.getTime());
+			assertSame(date, formatter.getDate());
+		}
+		// Reconfiguring rebuilds the symbols, not the buffers
+		formatter.configure(Locale.FRANCE, TimeZone.getTimeZone("Europe/Paris"), true);
+		formatter.format(SATURDAY_EVENING);
+		assertSame(time, formatter.getTime());
+		assertSame(date, formatter.getDate());
+	}
+
+	@Test
+	public void formatAllocatesNothing() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			// Allocation counters are HotSpot only; reusesItsBuffers still covers the buffers
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long threadId = Thread.currentThread().getId();
+
+		// Past the JIT, every minute of several months so the date buffer is rewritten too
+		for (int i = 0; i < WARMUP_TICKS; i++) {
+			formatter.format(SATURDAY_EVENING + i * MINUTE_MS);
+		}
+		long before = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < MEASURED_TICKS; i++) {
+			formatter.format(SATURDAY_EVENING + (WARMUP_TICKS + i) * MINUTE_MS);
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+		// Well under one byte per tick; a String per tick would be tens of bytes each
+		assertTrue(allocated + " bytes allocated over " + MEASURED_TICKS + " ticks", allocated < MEASURED_TICKS / 10);
+	}
+}
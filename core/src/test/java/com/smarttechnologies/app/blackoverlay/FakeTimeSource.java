@@ -0,0 +1,37 @@
+package com.smarttechnologies.app.blackoverlay;
+
+// Wall and uptime clocks that only move when told to; setWallTime() jumps the wall clock alone, like a user or NTP change
+public class FakeTimeSource implements TimeSource {
+
+	private long wallMillis;
+	private long uptimeMillis;
+
+	public FakeTimeSource(long wallMillis, long uptimeMillis) {
+		this.wallMillis = wallMillis;
+		this.uptimeMillis = uptimeMillis;
+	}
+
+	public void advance(long millis) {
+		wallMillis += millis;
+		uptimeMillis += millis;
+	}
+
+	// Moves both clocks to the given uptime
+	public void advanceToUptime(long uptime) {
+		advance(uptime - uptimeMillis);
+	}
+
+	public void setWallTime(long wallMillis) {
+		this.wallMillis = wallMillis;
+	}
+
+	@Override
+	public long currentTimeMillis() {
+		return wallMillis;
+	}
+
+	@Override
+	public long uptimeMillis() {
+		return uptimeMillis;
+	}
+}
@@ -0,0 +1,173 @@
+package com.smarttechnologies.app.blackoverlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+import java.util.TimeZone;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+* Runs the overlay clock on simulated time, the way ClockUtils schedules it: a tick for every
+* TIME_TICK broadcast and for the fallback post that each tick pushes back. Checks the formatter
+* output along the way and the wakeups against WakeupBudget over a full night.
+*/
+public class MinuteClockTest {
+
+	private static final long MINUTE_MS = 60 * 1000L;
+	private static final long HOUR_MS = 60 * MINUTE_MS;
+	// 2024-03-09 22:30:17.250 UTC, a Saturday
+	private static final long START_WALL = 1710023417250L;
+	private static final long START_UPTIME = 5_000_000L;
+	private static final long NO_TIME_TICK = -1;
+
+	private FakeTimeSource time;
+	private ClockFormatter formatter;
+	private MinuteClock clock;
+
+	@Before
+	public void setUp() {
+		time = new FakeTimeSource(START_WALL, START_UPTIME);
+		formatter = new ClockFormatter();
+		formatter.configure(Locale.US, TimeZone.getTimeZone("UTC"), true);
+		clock = new MinuteClock(time, formatter);
+	}
+
+	@Test
+	public void nextMinuteIsOnTheWallClockBoundary() {
+		long next = clock.nextMinuteUptime();
+		assertEquals(START_UPTIME + 42_750, next);
+		time.advanceToUptime(next);
+		assertEquals(0, time.currentTimeMillis() % MINUTE_MS);
+		// Exactly on a boundary waits for the following one, never zero
+		assertEquals(time.uptimeMillis() + MINUTE_MS, clock.nextMinuteUptime());
+	}
+
+	@Test
+	public void nightWithClockStaysWithinBudget() {
+		long hours = 8;
+		long wakeups = runNight(hours * HOUR_MS, 300);
+		assertWithinBudget(wakeups);
+		// The initial render plus one TIME_TICK per minute; the fallback never fires
+		assertEquals(hours * 60 + 1, wakeups);
+	}
+
+	@Test
+	public void fallbackKeepsTheClockGoingWithoutTimeTick() {
+		long hours = 8;
+		long wakeups = runNight(hours * HOUR_MS, NO_TIME_TICK);
+		assertWithinBudget(wakeups);
+		assertEquals(hours * 60 + 1, wakeups);
+	}
+
+	@Test
+	public void fallbackIsOnlyDueAfterTheGrace() {
+		assertEquals(clock.nextMinuteUptime() + MinuteClock.FALLBACK_GRACE_MS, clock.fallbackUptime());
+	}
+
+	@Test
+	public void timeTickLaterThanTheGraceIsOverBudget() {
+		// Fallback and broadcast both wake for every minute; the budget is what reports it
+		long wakeups = runNight(HOUR_MS, MinuteClock.FALLBACK_GRACE_MS + 1000);
+		assertEquals(2 * 60 + 1, wakeups);
+		assertTrue(!WakeupBudget.isWithinBudget(wakeups, WakeupBudget.perHour(false, true), HOUR_MS, 0));
+	}
+
+	@Test
+	public void everyTickChangesTheTimeAndOnlyMidnightTheDate() {
+		int first = clock.tick();
+		assertEquals(ClockFormatter.TIME_CHANGED | ClockFormatter.DATE_CHANGED, first);
+		assertEquals("22:30", formatter.getTime().toString());
+		assertEquals("Sat, Mar 09", formatter.getDate().toString());
+
+		int dateChanges = 0;
+		for (int i = 0; i < 3 * 60; i++) {
+			time.advanceToUptime(clock.nextMinuteUptime());
+			int changed = clock.tick();
+			assertTrue("Tick " + i + " did not change the time", (changed & ClockFormatter.TIME_CHANGED) != 0);
+			if ((changed & ClockFormatter.DATE_CHANGED) != 0) {
+				dateChanges++;
+				assertEquals("00:00", formatter.getTime().toString());
+				assertEquals("Sun, Mar 10", formatter.getDate().toString());
+			}
+		}
+		assertEquals(1, dateChanges);
+		assertEquals("01:30", formatter.getTime().toString());
+	}
+
+	@Test
+	public void sameMinuteRendersNothing() {
+		clock.tick();
+		time.advance(10_000);
+		assertEquals(0, clock.tick());
+	}
+
+	@Test
+	public void wallClockJumpReschedulesWithinAMinute() {
+		clock.tick();
+		// Set back by an hour and 20 s, as a TIME_CHANGED broadcast would report
+		time.setWallTime(START_WALL - HOUR_MS - 20_000);
+		long next = clock.nextMinuteUptime();
+		assertTrue(next > time.uptimeMillis() && next <= time.uptimeMillis() + MINUTE_MS);
+		time.advanceToUptime(next);
+		assertEquals(0, time.currentTimeMillis() % MINUTE_MS);
+		assertEquals(ClockFormatter.TIME_CHANGED, clock.tick());
+		assertEquals("21:30", formatter.getTime().toString());
+	}
+
+	@Test
+	public void modesWithoutClockAllowOnlyTheSessionAllowance() {
+		long eightHours = 8 * HOUR_MS;
+		assertEquals(WakeupBudget.SESSION_ALLOWANCE,
+				WakeupBudget.allowed(WakeupBudget.perHour(true, false), eightHours, 0));
+		assertEquals(WakeupBudget.SESSION_ALLOWANCE,
+				WakeupBudget.allowed(WakeupBudget.perHour(false, false), eightHours, 0));
+		// One catch-up render per screen-on
+		assertEquals(WakeupBudget.SESSION_ALLOWANCE + 3,
+				WakeupBudget.allowed(WakeupBudget.perHour(false, false), eightHours, 3));
+	}
+
+	@Test
+	public void budgetRoundsPartialHoursUp() {
+		int perHour = WakeupBudget.perHour(false, true);
+		assertEquals(1 + WakeupBudget.SESSION_ALLOWANCE, WakeupBudget.allowed(perHour, 1, 0));
+		assertEquals(perHour + WakeupBudget.SESSION_ALLOWANCE, WakeupBudget.allowed(perHour, HOUR_MS, 0));
+		assertTrue(!WakeupBudget.isWithinBudget(perHour + WakeupBudget.SESSION_ALLOWANCE + 1, perHour, HOUR_MS, 0));
+	}
+
+	private void assertWithinBudget(long wakeups) {
+		long elapsed = time.uptimeMillis() - START_UPTIME;
+		assertTrue(wakeups + " wakeups over " + elapsed + " ms",
+				WakeupBudget.isWithinBudget(wakeups, WakeupBudget.perHour(false, true), elapsed, 0));
+	}
+
+	/**
+	* The initial render, then every wakeup until duration has passed: TIME_TICK a fixed delay after
+	* each wall-clock minute (never with NO_TIME_TICK), and the fallback wherever the last tick put it.
+	* A broadcast for a minute the fallback already rendered must change nothing.
+	*/
+	private long runNight(long duration, long timeTickDelayMs) {
+		long end = time.uptimeMillis() + duration;
+		long wakeups = 1;
+		clock.tick();
+		long fallback = clock.fallbackUptime();
+		long broadcast = timeTickDelayMs == NO_TIME_TICK ? Long.MAX_VALUE : clock.nextMinuteUptime() + timeTickDelayMs;
+		while (Math.min(fallback, broadcast) <= end) {
+			if (broadcast <= fallback) {
+				time.advanceToUptime(broadcast);
+				int changed = clock.tick();
+				if (timeTickDelayMs > MinuteClock.FALLBACK_GRACE_MS) {
+					assertEquals("Late TIME_TICK rendered again", 0, changed);
+				}
+				broadcast += MINUTE_MS;
+			} else {
+				time.advanceToUptime(fallback);
+				assertEquals(ClockFormatter.TIME_CHANGED, clock.tick() & ClockFormatter.TIME_CHANGED);
+			}
+			wakeups++;
+			fallback = clock.fallbackUptime();
+		}
+		return wakeups;
+	}
+}
@@ -0,0 +1,117 @@
+package com.smarttechnologies.app.blackoverlay.macrobenchmark;
+
+import android.graphics.Point;
+import androidx.annotation.OptIn;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.ExperimentalMetricApi;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.UiObject2;
+import java.util.Collections;
+import kotlin.Unit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+* Scenarios around FloatingButtonService. The latency ones read the app's own OverlayTrace slices,
+* so they need the app's benchmark build type (OVERLAY_TRACING on, API 29+ for async slices).
+*/
+@OptIn(markerClass = ExperimentalMetricApi.class)
+@RunWith(AndroidJUnit4.class)
+public class OverlayBenchmark {
+
+	private static final String SERVICE_START_TO_BUTTON = "Service.startToButtonVisible";
+	private static final String TAP_TO_BLACK = "Overlay.tapToBlack";
+	// Let the overlay's first frames and the brightness write settle inside the trace
+	private static final long SETTLE_MS = 1000;
+
+	@Rule
+	public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+	// FloatingButtonService.onCreate() to the first committed frame of the floating button
+	@Test
+	public void serviceStartToFloatingButton() {
+		benchmarkRule.measureRepeated(OverlayScenarios.PACKAGE,
+				Collections.singletonList(new TraceSectionMetric(SERVICE_START_TO_BUTTON, TraceSectionMetric.Mode.First)),
+				new CompilationMode.Partial(),
+				null,
+				OverlayScenarios.ITERATIONS,
+				scope -> {
+					OverlayScenarios.grantPermissions(scope);
+					scope.killProcess();
+					return Unit.INSTANCE;
+				},
+				scope -> {
+					// MainActivity starts the service as soon as it sees the permissions granted
+					OverlayScenarios.launch(scope, true);
+					OverlayScenarios.waitForFloatingButton(scope);
+					return Unit.INSTANCE;
+				});
+	}
+
+	@Test
+	public void tapToBlackUntouchable() {
+		measureTapToBlack(true);
+	}
+
+	@Test
+	public void tapToBlackTouchable() {
+		measureTapToBlack(false);
+	}
+
+	// Floating button tap to the first committed black frame, warm or cold per the app's setting. The
+	// slice opens when the overlay thread takes the tap, before the overlay is inflated or attached.
+	private void measureTapToBlack(boolean preventTouch) {
+		UiObject2[] button = new UiObject2[1];
+		benchmarkRule.measureRepeated(OverlayScenarios.PACKAGE,
+				Collections.singletonList(new TraceSectionMetric(TAP_TO_BLACK, TraceSectionMetric.Mode.First)),
+				new CompilationMode.Partial(),
+				null,
+				OverlayScenarios.ITERATIONS,
+				scope -> {
+					OverlayScenarios.grantPermissions(scope);
+					scope.killProcess();
+					OverlayScenarios.launch(scope, preventTouch);
+					button[0] = OverlayScenarios.waitForFloatingButton(scope);
+					return Unit.INSTANCE;
+				},
+				scope -> {
+					button[0].click();
+					scope.getDevice().waitForIdle(SETTLE_MS);
+					return Unit.INSTANCE;
+				});
+	}
+
+	// Drags the floating button around the screen edges; exercises FloatingButtonMover's per-frame coalescing
+	@Test
+	public void dragFloatingButton() {
+		UiObject2[] button = new UiObject2[1];
+		benchmarkRule.measureRepeated(OverlayScenarios.PACKAGE,
+				Collections.singletonList(new FrameTimingMetric()),
+				new CompilationMode.Partial(),
+				null,
+				OverlayScenarios.ITERATIONS,
+				scope -> {
+					OverlayScenarios.grantPermissions(scope);
+					scope.killProcess();
+					OverlayScenarios.launch(scope, true);
+					scope.pressHome();
+					button[0] = OverlayScenarios.waitForFloatingButton(scope);
+					return Unit.INSTANCE;
+				},
+				scope -> {
+					int width = scope.getDevice().getDisplayWidth();
+					int height = scope.getDevice().getDisplayHeight();
+					Point[] stops = { new Point(width * 3 / 4, height / 4), new Point(width / 4, height / 2),
+							new Point(width * 3 / 4, height * 3 / 4) };
+					for (Point stop : stops) {
+						button[0].drag(stop, 1500);
+						scope.getDevice().waitForIdle();
+					}
+					return Unit.INSTANCE;
+				});
+	}
+}
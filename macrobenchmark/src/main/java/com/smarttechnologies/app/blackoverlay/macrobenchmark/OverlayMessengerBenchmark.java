@@ -0,0 +1,147 @@
+package com.smarttechnologies.app.blackoverlay.macrobenchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Instrumentation;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.UiDevice;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+* Local client for the app's bound OverlayMessenger API. Sends a stream of batches and checks they
+* are answered in the order sent and that the state stream ends on the last batch, then logs the
+* round-trip percentiles. Plain instrumentation rather than a macrobenchmark: it times IPC from this
+* process, not frames in the app.
+*/
+@RunWith(AndroidJUnit4.class)
+public class OverlayMessengerBenchmark {
+
+	private static final String TAG = "OverlayMessengerBench";
+
+	// Mirrors OverlayMessenger; the benchmark APK cannot link against the app
+	private static final int MSG_APPLY = 1;
+	private static final int MSG_REGISTER = 2;
+	private static final int MSG_UNREGISTER = 3;
+	private static final int MSG_APPLIED = 101;
+	private static final int MSG_STATE = 102;
+	private static final String KEY_SHOWN = "shown";
+	private static final String KEY_DIM_LEVEL = "dimLevel";
+	private static final String KEY_PREVENT_TOUCH = "preventTouch";
+
+	private static final int BATCHES = 200;
+	private static final long TIMEOUT_S = 10;
+
+	@Test
+	public void roundTripAndOrdering() throws Exception {
+		Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+		OverlayScenarios.grantPermissions(UiDevice.getInstance(instrumentation));
+		Context context = instrumentation.getContext();
+
+		HandlerThread replyThread = new HandlerThread("OverlayClient");
+		replyThread.start();
+		long[] sentNanos = new long[BATCHES];
+		long[] roundTripNanos = new long[BATCHES];
+		List<Integer> applied = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch allApplied = new CountDownLatch(BATCHES);
+		int lastDimLevel = (BATCHES - 1) % 100;
+		CountDownLatch finalState = new CountDownLatch(1);
+		Messenger replies = new Messenger(new Handler(replyThread.getLooper()) {
+			@Override
+			public void handleMessage(Message msg) {
+				if (msg.what == MSG_APPLIED) {
+					roundTripNanos[msg.arg1] = SystemClock.elapsedRealtimeNanos() - sentNanos[msg.arg1];
+					applied.add(msg.arg1);
+					allApplied.countDown();
+				} else if (msg.what == MSG_STATE && allApplied.getCount() == 0) {
+					Bundle state = msg.getData();
+					if (state.getBoolean(KEY_SHOWN) && state.getInt(KEY_DIM_LEVEL) == lastDimLevel) {
+						finalState.countDown();
+					}
+				}
+			}
+		});
+
+		IBinder[] binder = new IBinder[1];
+		CountDownLatch connected = new CountDownLatch(1);
+		ServiceConnection connection = new ServiceConnection() {
+			@Override
+			public void onServiceConnected(ComponentName name, IBinder service) {
+				binder[0] = service;
+				connected.countDown();
+			}
+
+			@Override
+			public void onServiceDisconnected(ComponentName name) {
+			}
+		};
+		Intent intent = new Intent().setClassName(OverlayScenarios.PACKAGE,
+				OverlayScenarios.PACKAGE + ".FloatingButtonService");
+		assertTrue("bindService failed", context.bindService(intent, connection, Context.BIND_AUTO_CREATE));
+		try {
+			assertTrue("Service did not connect", connected.await(TIMEOUT_S, TimeUnit.SECONDS));
+			Messenger service = new Messenger(binder[0]);
+			Message register = Message.obtain(null, MSG_REGISTER);
+			register.replyTo = replies;
+			service.send(register);
+
+			// The first batch shows the untouchable overlay; the rest only move the dim level
+			for (int i = 0; i < BATCHES; i++) {
+				Bundle batch = new Bundle();
+				if (i == 0) {
+					batch.putBoolean(KEY_SHOWN, true);
+					batch.putBoolean(KEY_PREVENT_TOUCH, true);
+				}
+				batch.putInt(KEY_DIM_LEVEL, i % 100);
+				Message apply = Message.obtain(null, MSG_APPLY, i, 0);
+				apply.setData(batch);
+				apply.replyTo = replies;
+				sentNanos[i] = SystemClock.elapsedRealtimeNanos();
+				service.send(apply);
+			}
+
+			assertTrue("Not every batch was answered", allApplied.await(TIMEOUT_S, TimeUnit.SECONDS));
+			for (int i = 0; i < BATCHES; i++) {
+				assertEquals("Batches answered out of order", i, (int) applied.get(i));
+			}
+			assertTrue("State stream did not end on the last batch", finalState.await(TIMEOUT_S, TimeUnit.SECONDS));
+
+			long[] sorted = roundTripNanos.clone();
+			Arrays.sort(sorted);
+			Log.i(TAG, "Batch round trip over " + BATCHES + ": p50 " + sorted[BATCHES / 2] / 1000 + " us, p90 "
+					+ sorted[BATCHES * 9 / 10] / 1000 + " us, max " + sorted[BATCHES - 1] / 1000 + " us");
+
+			Bundle hide = new Bundle();
+			hide.putBoolean(KEY_SHOWN, false);
+			Message apply = Message.obtain(null, MSG_APPLY);
+			apply.setData(hide);
+			service.send(apply);
+			Message unregister = Message.obtain(null, MSG_UNREGISTER);
+			unregister.replyTo = replies;
+			service.send(unregister);
+		} finally {
+			context.unbindService(connection);
+			replyThread.quitSafely();
+		}
+	}
+}
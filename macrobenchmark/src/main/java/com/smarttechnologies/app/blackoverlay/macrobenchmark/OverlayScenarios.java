@@ -0,0 +1,60 @@
+package com.smarttechnologies.app.blackoverlay.macrobenchmark;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+import java.io.IOException;
+import kotlin.Unit;
+
+/**
+* Shared steps for the macrobenchmarks. Every scenario starts from a force-stopped app, so a
+* touchable overlay left over from the previous iteration (which has no on-screen way out) is
+* always gone before the next one.
+*/
+final class OverlayScenarios {
+
+	static final String PACKAGE = "com.smarttechnologies.app.blackoverlay";
+	// Mirrors MainActivity.EXTRA_PREVENT_TOUCH; the benchmark APK cannot link against the app. Only
+	// the app's benchmark build type honours it.
+	static final String EXTRA_PREVENT_TOUCH = PACKAGE + ".extra.PREVENT_TOUCH";
+	static final int ITERATIONS = 10;
+
+	private static final long WAIT_TIMEOUT_MS = 5000;
+
+	private OverlayScenarios() {
+	}
+
+	// appops grants survive force-stop, so this only has to run once per scenario
+	static void grantPermissions(MacrobenchmarkScope scope) {
+		grantPermissions(scope.getDevice());
+	}
+
+	static void grantPermissions(UiDevice device) {
+		try {
+			device.executeShellCommand("appops set " + PACKAGE + " SYSTEM_ALERT_WINDOW allow");
+			device.executeShellCommand("appops set " + PACKAGE + " WRITE_SETTINGS allow");
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not grant overlay permissions", e);
+		}
+	}
+
+	static void launch(MacrobenchmarkScope scope, boolean preventTouch) {
+		scope.startActivityAndWait(intent -> {
+			intent.putExtra(EXTRA_PREVENT_TOUCH, preventTouch);
+			return Unit.INSTANCE;
+		});
+	}
+
+	static UiObject2 waitForFloatingButton(MacrobenchmarkScope scope) {
+		UiDevice device = scope.getDevice();
+		UiObject2 button = device.wait(Until.findObject(By.res(PACKAGE, "floating_button_icon")), WAIT_TIMEOUT_MS);
+		if (button == null) {
+			throw new IllegalStateException("Floating button did not show up");
+		}
+		// Let the idle-time overlay prewarm finish so it is not measured as part of the tap
+		device.waitForIdle();
+		return button;
+	}
+}
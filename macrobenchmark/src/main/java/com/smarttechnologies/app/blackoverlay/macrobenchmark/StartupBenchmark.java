@@ -0,0 +1,50 @@
+package com.smarttechnologies.app.blackoverlay.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.Collections;
+import kotlin.Unit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+* MainActivity time-to-initial-display. Results land in the connected test output as
+* *-benchmarkData.json next to the Perfetto traces of each iteration.
+*/
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+	@Rule
+	public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+	@Test
+	public void startupCold() {
+		measureStartup(StartupMode.COLD);
+	}
+
+	@Test
+	public void startupWarm() {
+		measureStartup(StartupMode.WARM);
+	}
+
+	private void measureStartup(StartupMode startupMode) {
+		benchmarkRule.measureRepeated(OverlayScenarios.PACKAGE,
+				Collections.singletonList(new StartupTimingMetric()),
+				new CompilationMode.Partial(),
+				startupMode,
+				OverlayScenarios.ITERATIONS,
+				scope -> {
+					OverlayScenarios.grantPermissions(scope);
+					scope.pressHome();
+					return Unit.INSTANCE;
+				},
+				scope -> {
+					scope.startActivityAndWait();
+					return Unit.INSTANCE;
+				});
+	}
+}